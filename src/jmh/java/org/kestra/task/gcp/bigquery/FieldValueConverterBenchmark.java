@@ -0,0 +1,186 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.cloud.bigquery.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FieldValueConverterBenchmark {
+    private static final int ROWS = 1_000;
+
+    private FieldList fields;
+    private List<FieldValueList> rows;
+
+    @Setup
+    public void setup() {
+        Field struct = Field.of(
+            "struct",
+            LegacySQLTypeName.RECORD,
+            Field.of("x", LegacySQLTypeName.INTEGER),
+            Field.of("y", LegacySQLTypeName.FLOAT)
+        );
+
+        this.fields = FieldList.of(
+            Field.of("string", LegacySQLTypeName.STRING),
+            Field.of("int", LegacySQLTypeName.INTEGER),
+            Field.of("float", LegacySQLTypeName.FLOAT),
+            Field.of("bool", LegacySQLTypeName.BOOLEAN),
+            Field.of("date", LegacySQLTypeName.DATE),
+            Field.of("timestamp", LegacySQLTypeName.TIMESTAMP),
+            Field.of("geopoint", LegacySQLTypeName.GEOGRAPHY),
+            Field.newBuilder("array", LegacySQLTypeName.INTEGER).setMode(Field.Mode.REPEATED).build(),
+            struct
+        );
+
+        this.rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            this.rows.add(FieldValueList.of(Arrays.asList(
+                primitive("hello " + i),
+                primitive(String.valueOf(i)),
+                primitive(i + ".25"),
+                primitive(i % 2 == 0 ? "true" : "false"),
+                primitive("2008-12-25"),
+                primitive("1.2298216E9"),
+                primitive("POINT(50.6833 2.9)"),
+                FieldValue.of(FieldValue.Attribute.REPEATED, Arrays.asList(primitive("1"), primitive("2"), primitive("3"))),
+                FieldValue.of(FieldValue.Attribute.RECORD, FieldValueList.of(
+                    Arrays.asList(primitive(String.valueOf(i)), primitive("0.5")),
+                    struct.getSubFields()
+                ))
+            ), this.fields));
+        }
+    }
+
+    @Benchmark
+    public void converter(Blackhole blackhole) {
+        FieldValueConverter converter = new FieldValueConverter(this.fields);
+
+        for (FieldValueList row : this.rows) {
+            blackhole.consume(converter.convert(row));
+        }
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        for (FieldValueList row : this.rows) {
+            blackhole.consume(Legacy.convertRows(this.fields, row));
+        }
+    }
+
+    private static FieldValue primitive(String value) {
+        return FieldValue.of(FieldValue.Attribute.PRIMITIVE, value);
+    }
+
+    /**
+     * The conversion used by Query before the compiled converter, kept as the baseline.
+     */
+    private static class Legacy {
+        private static Map<String, Object> convertRows(FieldList fields, FieldValueList fieldValues) {
+            HashMap<String, Object> row = new HashMap<>();
+            fields.forEach(field -> {
+                row.put(field.getName(), convertCell(field, fieldValues.get(field.getName()), false));
+            });
+
+            return row;
+        }
+
+        private static Object convertCell(Field field, FieldValue value, boolean isRepeated) {
+            if (field.getMode() == Field.Mode.REPEATED && !isRepeated) {
+                return value
+                    .getRepeatedValue()
+                    .stream()
+                    .map(fieldValue -> convertCell(field, fieldValue, true))
+                    .collect(Collectors.toList());
+            }
+
+            if (value.isNull()) {
+                return null;
+            }
+
+            if (LegacySQLTypeName.BOOLEAN.equals(field.getType())) {
+                return value.getBooleanValue();
+            }
+
+            if (LegacySQLTypeName.BYTES.equals(field.getType())) {
+                return value.getBytesValue();
+            }
+
+            if (LegacySQLTypeName.DATE.equals(field.getType())) {
+                return LocalDate.parse(value.getStringValue());
+            }
+
+            if (LegacySQLTypeName.DATETIME.equals(field.getType())) {
+                return Instant.parse(value.getStringValue() + "Z");
+            }
+
+            if (LegacySQLTypeName.FLOAT.equals(field.getType())) {
+                return value.getDoubleValue();
+            }
+
+            if (LegacySQLTypeName.GEOGRAPHY.equals(field.getType())) {
+                Pattern p = Pattern.compile("^POINT\\(([0-9.]+) ([0-9.]+)\\)$");
+                Matcher m = p.matcher(value.getStringValue());
+
+                if (m.find()) {
+                    return Arrays.asList(
+                        Double.parseDouble(m.group(1)),
+                        Double.parseDouble(m.group(2))
+                    );
+                }
+
+                throw new IllegalFormatFlagsException("Couldn't match '" + value.getStringValue() + "'");
+            }
+
+            if (LegacySQLTypeName.INTEGER.equals(field.getType())) {
+                return value.getLongValue();
+            }
+
+            if (LegacySQLTypeName.NUMERIC.equals(field.getType())) {
+                return value.getDoubleValue();
+            }
+
+            if (LegacySQLTypeName.RECORD.equals(field.getType())) {
+                AtomicInteger counter = new AtomicInteger(0);
+
+                return field
+                    .getSubFields()
+                    .stream()
+                    .map(sub -> new AbstractMap.SimpleEntry<>(
+                        sub.getName(),
+                        convertCell(sub, value.getRepeatedValue().get(counter.get()), false)
+                    ))
+                    .peek(u -> counter.getAndIncrement())
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            }
+
+            if (LegacySQLTypeName.STRING.equals(field.getType())) {
+                return value.getStringValue();
+            }
+
+            if (LegacySQLTypeName.TIME.equals(field.getType())) {
+                return LocalTime.parse(value.getStringValue());
+            }
+
+            if (LegacySQLTypeName.TIMESTAMP.equals(field.getType())) {
+                return Instant.ofEpochMilli(value.getTimestampValue() / 1000);
+            }
+
+            throw new IllegalArgumentException("Invalid type '" + field.getType() + "'");
+        }
+    }
+}
@@ -1,13 +1,62 @@
 package org.kestra.task.gcp;
 
+import com.google.auth.oauth2.AccessToken;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.auth.oauth2.ServiceAccountCredentials;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.hash.Hashing;
+import org.kestra.core.models.executions.metrics.Counter;
+import org.kestra.core.runners.RunContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class AbstractConnection {
+    private static final long CLIENT_CACHE_SIZE = 64;
+    private static final long CLIENT_CACHE_IDLE_MINUTES = 30;
+    private static final long TOKEN_REFRESH_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractConnection.class);
+    private static final Cache<String, GoogleCredentials> CREDENTIALS = clientCache();
+    private static final ScheduledExecutorService REFRESHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gcp-credentials-refresher");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    static {
+        REFRESHER.scheduleWithFixedDelay(AbstractConnection::refreshExpiring, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Parsed credentials are shared by every task using the same service account, so the access token fetched
+     * by one task run is reused by the next ones. Tokens are refreshed in the background before they expire.
+     */
     public GoogleCredentials credentials(String serviceAccount) {
+        try {
+            return CREDENTIALS.get(fingerprint(serviceAccount), () -> {
+                GoogleCredentials credentials = this.parse(serviceAccount);
+                REFRESHER.execute(() -> refresh(credentials));
+
+                return credentials;
+            });
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private GoogleCredentials parse(String serviceAccount) {
         ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(serviceAccount.getBytes());
         try {
             return ServiceAccountCredentials.fromStream(byteArrayInputStream);
@@ -15,4 +64,90 @@ public class AbstractConnection {
             throw new RuntimeException(e);
         }
     }
+
+    private static void refreshExpiring() {
+        CREDENTIALS
+            .asMap()
+            .values()
+            .forEach(credentials -> {
+                // an exception escaping the scheduled task would cancel every next refresh
+                try {
+                    AccessToken token = credentials.getAccessToken();
+
+                    if (token == null || (token.getExpirationTime() != null &&
+                        token.getExpirationTime().getTime() - System.currentTimeMillis() < TOKEN_REFRESH_MARGIN_MILLIS)
+                    ) {
+                        refresh(credentials);
+                    }
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Unable to check credentials expiration, will retry on next run", e);
+                }
+            });
+    }
+
+    private static void refresh(GoogleCredentials credentials) {
+        try {
+            credentials.refresh();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to refresh credentials, will retry on next use", e);
+        }
+    }
+
+    /**
+     * Create a process-wide client cache, bounded in size and evicting clients that are idle for too long.
+     */
+    protected static <T> Cache<String, T> clientCache() {
+        return clientCacheBuilder().build();
+    }
+
+    /**
+     * Same as {@link #clientCache()}, for clients holding resources that must be released once evicted.
+     */
+    protected static <T> Cache<String, T> clientCache(RemovalListener<String, T> listener) {
+        return clientCacheBuilder().removalListener(listener).build();
+    }
+
+    static CacheBuilder<Object, Object> clientCacheBuilder() {
+        return CacheBuilder
+            .newBuilder()
+            .maximumSize(CLIENT_CACHE_SIZE)
+            .expireAfterAccess(CLIENT_CACHE_IDLE_MINUTES, TimeUnit.MINUTES)
+            .recordStats();
+    }
+
+    /**
+     * Return the cached client for this key, creating it with the loader on the first call, and report
+     * the lookup as a client.cache.hit or client.cache.miss metric.
+     */
+    protected static <T> T client(RunContext runContext, Cache<String, T> cache, String key, Callable<T> loader) {
+        T client = cache.getIfPresent(key);
+
+        if (client != null) {
+            runContext.metric(Counter.of("client.cache.hit", 1));
+            return client;
+        }
+
+        try {
+            client = cache.get(key, loader);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+
+        runContext.metric(Counter.of("client.cache.miss", 1));
+
+        return client;
+    }
+
+    /**
+     * A stable fingerprint of the credentials used, to never share a client between two service accounts.
+     */
+    protected static String fingerprint(String serviceAccount) {
+        if (serviceAccount == null) {
+            return "default";
+        }
+
+        return Hashing.sha256()
+            .hashString(serviceAccount, StandardCharsets.UTF_8)
+            .toString();
+    }
 }
@@ -1,6 +1,10 @@
 package org.kestra.task.gcp.bigquery;
 
 import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.BigQueryException;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.storage.v1.BigQueryReadClient;
+import com.google.cloud.bigquery.storage.v1alpha2.BigQueryWriteClient;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -8,8 +12,12 @@ import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 import org.kestra.core.exceptions.IllegalVariableEvaluationException;
 import org.kestra.core.models.annotations.InputProperty;
+import org.kestra.core.models.executions.metrics.Counter;
 import org.kestra.core.models.tasks.Task;
 import org.kestra.core.runners.RunContext;
+import org.slf4j.Logger;
+
+import java.io.IOException;
 
 @SuperBuilder
 @ToString
@@ -36,8 +44,55 @@ abstract public class AbstractBigquery extends Task {
 
     protected BigQuery connection(RunContext runContext) throws IllegalVariableEvaluationException {
         return new Connection().of(
+            runContext,
             runContext.render(this.projectId),
             runContext.render(this.location)
         );
     }
+
+    protected BigQueryReadClient readClient(RunContext runContext) throws IllegalVariableEvaluationException {
+        return new Connection().readClient(
+            runContext,
+            runContext.render(this.projectId),
+            runContext.render(this.location)
+        );
+    }
+
+    protected BigQueryWriteClient writeClient(RunContext runContext) throws IllegalVariableEvaluationException {
+        return new Connection().writeClient(
+            runContext,
+            runContext.render(this.projectId),
+            runContext.render(this.location)
+        );
+    }
+
+    /**
+     * Wait for the job, and cancel it if the task stops waiting before the job is done (interruption when the
+     * task is killed, polling timeout or error) so it doesn't keep consuming slots.
+     */
+    protected Job waitFor(RunContext runContext, JobPolling polling, Job job, Logger logger) throws InterruptedException, IOException {
+        try {
+            return (polling != null ? polling : new JobPolling()).waitFor(job);
+        } catch (InterruptedException | IOException | RuntimeException e) {
+            this.cancel(runContext, job, logger);
+
+            throw e;
+        }
+    }
+
+    protected void cancel(RunContext runContext, Job job, Logger logger) {
+        try {
+            if (job.cancel()) {
+                logger.warn("Job '{}' cancelled", job.getJobId().getJob());
+
+                runContext.metric(Counter.of(
+                    "job.cancelled", 1,
+                    "projectId", job.getJobId().getProject(),
+                    "location", job.getJobId().getLocation()
+                ));
+            }
+        } catch (BigQueryException e) {
+            logger.warn("Unable to cancel job '{}'", job.getJobId().getJob(), e);
+        }
+    }
 }
@@ -43,11 +43,20 @@ abstract public class AbstractLoad extends AbstractBigquery implements RunnableT
     )
     private List<JobInfo.SchemaUpdateOption> schemaUpdateOptions;
 
+    @Deprecated
     @InputProperty(
-        description = "The time partitioning specification for the destination table"
+        description = "The time partitioning field for the destination table",
+        body = "Deprecated, use 'partitioning.timeField' instead."
     )
     private String timePartitioningField;
 
+    @InputProperty(
+        description = "The partitioning options for the destination table",
+        body = "The time partitioning field, type, expiration and partition filter requirement, or an integer\n" +
+            " range partitioning."
+    )
+    private Partitioning partitioning;
+
     @InputProperty(
         description = "The action that should occur if the destination table already exists"
     )
@@ -101,6 +110,12 @@ abstract public class AbstractLoad extends AbstractBigquery implements RunnableT
     )
     private AvroOptions avroOptions;
 
+    @InputProperty(
+        description = "How to wait for the BigQuery job",
+        body = "The delays between job status checks and the maximum duration to wait for the job."
+    )
+    private JobPolling polling;
+
     @SuppressWarnings("DuplicatedCode")
     protected void setOptions(LoadConfiguration.Builder builder) {
         if (this.clusteringFields != null) {
@@ -111,11 +126,20 @@ abstract public class AbstractLoad extends AbstractBigquery implements RunnableT
             builder.setSchemaUpdateOptions(this.schemaUpdateOptions);
         }
 
-        if (this.timePartitioningField != null) {
-            builder.setTimePartitioning(TimePartitioning.newBuilder(TimePartitioning.Type.DAY)
-                .setField(this.timePartitioningField)
-                .build()
-            );
+        Partitioning partitioning = Partitioning.of(this.partitioning, this.timePartitioningField);
+
+        TimePartitioning timePartitioning = partitioning.timePartitioning();
+        if (timePartitioning != null) {
+            builder.setTimePartitioning(timePartitioning);
+        }
+
+        RangePartitioning rangePartitioning = partitioning.rangePartitioning();
+        if (rangePartitioning != null) {
+            if (!(builder instanceof LoadJobConfiguration.Builder)) {
+                throw new IllegalArgumentException("Range partitioning can't be set by this task, the destination table must be created first");
+            }
+
+            ((LoadJobConfiguration.Builder) builder).setRangePartitioning(rangePartitioning);
         }
 
         if (this.writeDisposition != null) {
@@ -167,7 +191,7 @@ abstract public class AbstractLoad extends AbstractBigquery implements RunnableT
 
     protected Output execute(RunContext runContext, Logger logger, LoadConfiguration configuration, Job job) throws InterruptedException, IOException, IllegalVariableEvaluationException{
         Connection.handleErrors(job, logger);
-        job = job.waitFor();
+        job = this.waitFor(runContext, this.polling, job, logger);
         Connection.handleErrors(job, logger);
 
         JobStatistics.LoadStatistics stats = job.getStatistics();
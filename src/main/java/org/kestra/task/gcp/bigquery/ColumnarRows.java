@@ -0,0 +1,284 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.FieldList;
+
+import java.util.*;
+
+/**
+ * An append-only list of rows stored by column: field names are shared by all the rows, numeric and
+ * boolean columns are kept in primitive arrays and strings are dictionary encoded, until a column has too many
+ * distinct values.
+ * Rows are exposed as read-only map views created on access.
+ */
+public class ColumnarRows extends AbstractList<Map<String, Object>> {
+    private static final int INITIAL_CAPACITY = 64;
+    // above this number of distinct values, the dictionary costs more than the strings it deduplicates
+    static final int MAX_DICTIONARY_SIZE = 4096;
+
+    private final String[] names;
+    private final Map<String, Integer> indexes;
+    private final Column[] columns;
+    private int size = 0;
+
+    public ColumnarRows(FieldList fields) {
+        this.names = new String[fields.size()];
+        this.indexes = new HashMap<>();
+        this.columns = new Column[fields.size()];
+
+        for (int i = 0; i < fields.size(); i++) {
+            this.names[i] = fields.get(i).getName();
+            this.indexes.put(this.names[i], i);
+            this.columns[i] = column(fields.get(i));
+        }
+    }
+
+    @Override
+    public boolean add(Map<String, Object> row) {
+        for (int i = 0; i < this.columns.length; i++) {
+            this.columns[i].set(this.size, row.get(this.names[i]));
+        }
+
+        this.size++;
+
+        return true;
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        Objects.checkIndex(index, this.size);
+
+        return new Row(index);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    private static Column column(Field field) {
+        if (field.getMode() == Field.Mode.REPEATED) {
+            return new ObjectColumn();
+        }
+
+        switch (field.getType().getStandardType()) {
+            case INT64:
+                return new LongColumn();
+            case FLOAT64:
+            case NUMERIC:
+                return new DoubleColumn();
+            case BOOL:
+                return new BooleanColumn();
+            case STRING:
+                return new DictionaryColumn();
+            default:
+                return new ObjectColumn();
+        }
+    }
+
+    private class Row extends AbstractMap<String, Object> {
+        private final int index;
+
+        private Row(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer column = indexes.get(key);
+
+            return column == null ? null : columns[column].get(this.index);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexes.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return names.length;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int column = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return this.column < names.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!this.hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+
+                            Entry<String, Object> entry = new SimpleImmutableEntry<>(names[this.column], columns[this.column].get(index));
+                            this.column++;
+
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return names.length;
+                }
+            };
+        }
+    }
+
+    private abstract static class Column {
+        protected final BitSet nulls = new BitSet();
+
+        void set(int row, Object value) {
+            if (value == null) {
+                this.nulls.set(row);
+            } else {
+                this.setValue(row, value);
+            }
+        }
+
+        Object get(int row) {
+            return this.nulls.get(row) ? null : this.getValue(row);
+        }
+
+        protected static int grow(int length, int row) {
+            return Math.max(row + 1, Math.max(INITIAL_CAPACITY, length * 2));
+        }
+
+        abstract void setValue(int row, Object value);
+
+        abstract Object getValue(int row);
+    }
+
+    private static class LongColumn extends Column {
+        private long[] values = new long[0];
+
+        @Override
+        void setValue(int row, Object value) {
+            if (row >= this.values.length) {
+                this.values = Arrays.copyOf(this.values, grow(this.values.length, row));
+            }
+
+            this.values[row] = ((Number) value).longValue();
+        }
+
+        @Override
+        Object getValue(int row) {
+            return this.values[row];
+        }
+    }
+
+    private static class DoubleColumn extends Column {
+        private double[] values = new double[0];
+
+        @Override
+        void setValue(int row, Object value) {
+            if (row >= this.values.length) {
+                this.values = Arrays.copyOf(this.values, grow(this.values.length, row));
+            }
+
+            this.values[row] = ((Number) value).doubleValue();
+        }
+
+        @Override
+        Object getValue(int row) {
+            return this.values[row];
+        }
+    }
+
+    private static class BooleanColumn extends Column {
+        private final BitSet values = new BitSet();
+
+        @Override
+        void setValue(int row, Object value) {
+            this.values.set(row, (Boolean) value);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return this.values.get(row);
+        }
+    }
+
+    private static class DictionaryColumn extends Column {
+        private List<String> dictionary = new ArrayList<>();
+        private Map<String, Integer> codes = new HashMap<>();
+        private int[] values = new int[0];
+        // the plain values, once the dictionary was dropped
+        private String[] strings;
+
+        @Override
+        void setValue(int row, Object value) {
+            if (this.strings != null) {
+                if (row >= this.strings.length) {
+                    this.strings = Arrays.copyOf(this.strings, grow(this.strings.length, row));
+                }
+
+                this.strings[row] = (String) value;
+                return;
+            }
+
+            if (!this.codes.containsKey(value) && this.dictionary.size() >= MAX_DICTIONARY_SIZE) {
+                this.decode(row);
+                this.setValue(row, value);
+                return;
+            }
+
+            if (row >= this.values.length) {
+                this.values = Arrays.copyOf(this.values, grow(this.values.length, row));
+            }
+
+            this.values[row] = this.codes.computeIfAbsent((String) value, s -> {
+                this.dictionary.add(s);
+                return this.dictionary.size() - 1;
+            });
+        }
+
+        @Override
+        Object getValue(int row) {
+            return this.strings != null ? this.strings[row] : this.dictionary.get(this.values[row]);
+        }
+
+        private void decode(int rows) {
+            String[] strings = new String[grow(rows, rows)];
+
+            for (int i = 0; i < rows; i++) {
+                if (!this.nulls.get(i)) {
+                    strings[i] = this.dictionary.get(this.values[i]);
+                }
+            }
+
+            this.strings = strings;
+            this.dictionary = null;
+            this.codes = null;
+            this.values = null;
+        }
+    }
+
+    private static class ObjectColumn extends Column {
+        private Object[] values = new Object[0];
+
+        @Override
+        void setValue(int row, Object value) {
+            if (row >= this.values.length) {
+                this.values = Arrays.copyOf(this.values, grow(this.values.length, row));
+            }
+
+            this.values[row] = value;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return this.values[row];
+        }
+    }
+}
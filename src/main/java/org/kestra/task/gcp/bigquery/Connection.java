@@ -1,14 +1,28 @@
 package org.kestra.task.gcp.bigquery;
 
+import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.auth.Credentials;
 import com.google.cloud.bigquery.*;
+import com.google.cloud.bigquery.storage.v1.BigQueryReadClient;
+import com.google.cloud.bigquery.storage.v1.BigQueryReadSettings;
+import com.google.cloud.bigquery.storage.v1alpha2.BigQueryWriteClient;
+import com.google.cloud.bigquery.storage.v1alpha2.BigQueryWriteSettings;
+import com.google.common.cache.Cache;
 import org.kestra.core.exceptions.IllegalVariableEvaluationException;
 import org.kestra.core.runners.RunContext;
 import org.kestra.task.gcp.AbstractConnection;
 import org.slf4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Connection extends AbstractConnection {
+    private static final Cache<String, BigQuery> CLIENTS = clientCache();
+    // grpc clients hold channels and threads, shut down gracefully so running calls still complete
+    private static final Cache<String, BigQueryReadClient> READ_CLIENTS = clientCache(notification -> notification.getValue().shutdown());
+    private static final Cache<String, BigQueryWriteClient> WRITE_CLIENTS = clientCache(notification -> notification.getValue().shutdown());
+
     public BigQuery of(String projectId, String location) {
         return BigQueryOptions
             .newBuilder()
@@ -28,6 +42,46 @@ public class Connection extends AbstractConnection {
             .getService();
     }
 
+    public BigQuery of(RunContext runContext, String projectId, String location) {
+        return client(runContext, CLIENTS, key(projectId, location), () -> this.of(projectId, location));
+    }
+
+    /**
+     * A Storage Read API client using the same credentials as the BigQuery client for this project and location.
+     */
+    public BigQueryReadClient readClient(RunContext runContext, String projectId, String location) {
+        return client(runContext, READ_CLIENTS, key(projectId, location), () -> readClient(
+            this.of(runContext, projectId, location).getOptions().getCredentials()
+        ));
+    }
+
+    private static BigQueryReadClient readClient(Credentials credentials) throws IOException {
+        return BigQueryReadClient.create(BigQueryReadSettings.newBuilder()
+            .setCredentialsProvider(FixedCredentialsProvider.create(credentials))
+            .build()
+        );
+    }
+
+    /**
+     * A Storage Write API client using the same credentials as the BigQuery client for this project and location.
+     */
+    public BigQueryWriteClient writeClient(RunContext runContext, String projectId, String location) {
+        return client(runContext, WRITE_CLIENTS, key(projectId, location), () -> writeClient(
+            this.of(runContext, projectId, location).getOptions().getCredentials()
+        ));
+    }
+
+    private static BigQueryWriteClient writeClient(Credentials credentials) throws IOException {
+        return BigQueryWriteClient.create(BigQueryWriteSettings.newBuilder()
+            .setCredentialsProvider(FixedCredentialsProvider.create(credentials))
+            .build()
+        );
+    }
+
+    private static String key(String projectId, String location) {
+        return projectId + ":" + location;
+    }
+
     public static JobId jobId(RunContext runContext) throws IllegalVariableEvaluationException {
         return JobId.of(runContext
             .render("{{flow.namespace}}.{{flow.id}}_{{execution.id}}_{{taskrun.id}}")
@@ -35,6 +89,65 @@ public class Connection extends AbstractConnection {
         );
     }
 
+    /**
+     * The job id of the given retry of a job: the base id for the first attempt, then a suffix with the retry
+     * number, so each attempt finds the jobs of the previous ones.
+     */
+    public static JobId retryJobId(JobId jobId, int retry) {
+        if (retry == 0) {
+            return jobId;
+        }
+
+        return jobId.toBuilder()
+            .setJob(jobId.getJob() + "_retry_" + retry)
+            .build();
+    }
+
+    /**
+     * The jobs created by the previous attempts, in order, following the retry ids up to the first id with no job.
+     * Only the last one can still be running or succeeded, a new attempt is only created once the previous failed.
+     */
+    public static List<Job> attempts(BigQuery connection, JobId jobId) {
+        List<Job> attempts = new ArrayList<>();
+        Job job;
+
+        while ((job = connection.getJob(retryJobId(jobId, attempts.size()))) != null) {
+            attempts.add(job);
+        }
+
+        return attempts;
+    }
+
+    /**
+     * Create the job, or attach to the job already created with the same id by a previous attempt if it's
+     * still running or succeeded. If the previous attempt failed, the job is created with the next retry id.
+     */
+    public static Job createOrAttach(BigQuery connection, JobInfo jobInfo, Logger logger) {
+        JobId jobId = jobInfo.getJobId();
+
+        for (int retry = 0; ; retry++) {
+            JobId retryJobId = retryJobId(jobId, retry);
+
+            try {
+                return connection.create(jobInfo.toBuilder().setJobId(retryJobId).build());
+            } catch (BigQueryException exception) {
+                if (exception.getCode() != 409) {
+                    throw exception;
+                }
+            }
+
+            Job existing = connection.getJob(retryJobId);
+
+            if (existing != null && existing.getStatus().getError() == null) {
+                logger.info("Attaching to existing job '{}' in state {}", retryJobId.getJob(), existing.getStatus().getState());
+
+                return existing;
+            }
+
+            logger.info("Job '{}' already failed, creating job '{}'", retryJobId.getJob(), retryJobId(jobId, retry + 1).getJob());
+        }
+    }
+
     public static TableId tableId(String table) {
         String[] split = table.split("\\.");
         if (split.length == 2) {
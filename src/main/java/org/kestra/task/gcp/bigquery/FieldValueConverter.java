@@ -0,0 +1,117 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.FieldList;
+import com.google.cloud.bigquery.FieldValue;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Convert BigQuery rows to java maps, using a plan of typed decoders compiled once from the result schema
+ * and reused for every row.
+ */
+public class FieldValueConverter {
+    private static final Pattern GEOGRAPHY_POINT = Pattern.compile("^POINT\\(([0-9.]+) ([0-9.]+)\\)$");
+
+    private final String[] names;
+    private final Decoder[] decoders;
+
+    public FieldValueConverter(FieldList fields) {
+        this.names = new String[fields.size()];
+        this.decoders = new Decoder[fields.size()];
+
+        for (int i = 0; i < fields.size(); i++) {
+            this.names[i] = fields.get(i).getName();
+            this.decoders[i] = decoder(fields.get(i));
+        }
+    }
+
+    public Map<String, Object> convert(List<FieldValue> values) {
+        Map<String, Object> row = new HashMap<>((int) (this.names.length / 0.75f) + 1);
+
+        for (int i = 0; i < this.names.length; i++) {
+            row.put(this.names[i], this.decoders[i].decode(values.get(i)));
+        }
+
+        return row;
+    }
+
+    static List<Double> geography(String value) {
+        Matcher m = GEOGRAPHY_POINT.matcher(value);
+
+        if (m.find()) {
+            return Arrays.asList(
+                Double.parseDouble(m.group(1)),
+                Double.parseDouble(m.group(2))
+            );
+        }
+
+        throw new IllegalFormatFlagsException("Couldn't match '" + value + "'");
+    }
+
+    private static Decoder decoder(Field field) {
+        Decoder decoder = nullable(primitive(field));
+
+        if (field.getMode() == Field.Mode.REPEATED) {
+            Decoder element = decoder;
+
+            return value -> {
+                List<FieldValue> repeated = value.getRepeatedValue();
+                List<Object> list = new ArrayList<>(repeated.size());
+
+                for (FieldValue fieldValue : repeated) {
+                    list.add(element.decode(fieldValue));
+                }
+
+                return list;
+            };
+        }
+
+        return decoder;
+    }
+
+    private static Decoder nullable(Decoder decoder) {
+        return value -> value.isNull() ? null : decoder.decode(value);
+    }
+
+    private static Decoder primitive(Field field) {
+        switch (field.getType().getStandardType()) {
+            case BOOL:
+                return FieldValue::getBooleanValue;
+            case BYTES:
+                return FieldValue::getBytesValue;
+            case DATE:
+                return value -> LocalDate.parse(value.getStringValue());
+            case DATETIME:
+                return value -> Instant.parse(value.getStringValue() + "Z");
+            case FLOAT64:
+            case NUMERIC:
+                return FieldValue::getDoubleValue;
+            case GEOGRAPHY:
+                return value -> geography(value.getStringValue());
+            case INT64:
+                return FieldValue::getLongValue;
+            case STRUCT:
+                FieldValueConverter record = new FieldValueConverter(field.getSubFields());
+
+                return value -> record.convert(value.getRepeatedValue());
+            case STRING:
+                return FieldValue::getStringValue;
+            case TIME:
+                return value -> LocalTime.parse(value.getStringValue());
+            case TIMESTAMP:
+                return value -> Instant.ofEpochMilli(value.getTimestampValue() / 1000);
+            default:
+                throw new IllegalArgumentException("Invalid type '" + field.getType() + "'");
+        }
+    }
+
+    private interface Decoder {
+        Object decode(FieldValue value);
+    }
+}
@@ -0,0 +1,109 @@
+package org.kestra.task.gcp.bigquery;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Split a newline delimited file in shards of about the same size, cut on record boundaries. The leading
+ * header lines are kept apart so they can be repeated at the start of each shard.
+ */
+public class FileShards {
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel file;
+    @Getter
+    private final byte[] header;
+    private final long[] boundaries;
+
+    public FileShards(FileChannel file, long headerLines, int shards) throws IOException {
+        this.file = file;
+
+        long headerEnd = 0;
+        for (long i = 0; i < headerLines; i++) {
+            headerEnd = this.nextLine(headerEnd);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate((int) headerEnd);
+        while (header.hasRemaining()) {
+            if (file.read(header, header.position()) < 0) {
+                throw new IOException("Unexpected end of file at byte " + header.position());
+            }
+        }
+        this.header = header.array();
+
+        long size = file.size();
+        this.boundaries = new long[shards + 1];
+        this.boundaries[0] = headerEnd;
+        this.boundaries[shards] = size;
+
+        for (int i = 1; i < shards; i++) {
+            long target = headerEnd + (size - headerEnd) * i / shards;
+            this.boundaries[i] = this.nextLine(Math.max(this.boundaries[i - 1], target));
+        }
+    }
+
+    public int size() {
+        return this.boundaries.length - 1;
+    }
+
+    public boolean isEmpty(int shard) {
+        return this.boundaries[shard] >= this.boundaries[shard + 1];
+    }
+
+    /**
+     * Write the header and the shard content to the channel, with a single heap buffer of {@code bufferSize} bytes.
+     */
+    public long copy(int shard, WritableByteChannel channel, int bufferSize) throws IOException {
+        long written = 0;
+
+        ByteBuffer header = ByteBuffer.wrap(this.header);
+        while (header.hasRemaining()) {
+            written += channel.write(header);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        long position = this.boundaries[shard];
+        long end = this.boundaries[shard + 1];
+
+        while (position < end) {
+            buffer.limit((int) Math.min(bufferSize, end - position));
+
+            int read = this.file.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file at byte " + position);
+            }
+            position += read;
+
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        return written;
+    }
+
+    private long nextLine(long from) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = from;
+        int read;
+
+        while ((read = this.file.read(buffer, position)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+
+            position += read;
+            buffer.clear();
+        }
+
+        return this.file.size();
+    }
+}
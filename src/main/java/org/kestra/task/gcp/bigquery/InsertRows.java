@@ -0,0 +1,318 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.cloud.bigquery.*;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import org.kestra.core.models.annotations.Documentation;
+import org.kestra.core.models.annotations.Example;
+import org.kestra.core.models.annotations.InputProperty;
+import org.kestra.core.models.annotations.OutputProperty;
+import org.kestra.core.models.executions.metrics.Counter;
+import org.kestra.core.models.executions.metrics.Timer;
+import org.kestra.core.models.tasks.RunnableTask;
+import org.kestra.core.runners.RunContext;
+import org.kestra.core.serializers.JacksonMapper;
+import org.slf4j.Logger;
+
+import javax.validation.constraints.NotNull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+@SuperBuilder
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@Example(
+    title = "Insert the rows of a query result in a table",
+    code = {
+        "from: \"{{ outputs.query.uri }}\"",
+        "destinationTable: \"my_project.my_dataset.my_table\"",
+        "concurrency: 4"
+    }
+)
+@Documentation(
+    description = "Insert rows from a file in BigQuery with streaming inserts",
+    body = "The file is a newline delimited json file like the ones stored by the query task. Rows are sent in\n" +
+        " concurrent insertAll requests and are available for query within seconds, without a load job."
+)
+public class InsertRows extends AbstractBigquery implements RunnableTask<InsertRows.Output> {
+    private static final int MAX_REQUEST_ROWS = 50_000;
+    private static final int MAX_REQUEST_BYTES = 10 * 1024 * 1024;
+    // json envelope of each row in the request: the insert id and the "json" object
+    private static final int ROW_OVERHEAD_BYTES = 128;
+    private static final Set<String> RETRYABLE_REASONS = Set.of("backendError", "internalError", "stopped", "timeout");
+
+    @NotNull
+    @InputProperty(
+        description = "The fully-qualified URIs that point to source data",
+        body = "A newline delimited json file, with one object per row.",
+        dynamic = true
+    )
+    private String from;
+
+    @NotNull
+    @InputProperty(
+        description = "The table where to insert the rows",
+        dynamic = true
+    )
+    private String destinationTable;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The maximum number of rows in each request",
+        body = "Up to 50,000 rows, BigQuery recommends about 500 rows per request."
+    )
+    private int batchSize = 500;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The maximum size of each request in bytes",
+        body = "Up to 10 MB, the api limit. Default to 5 MB."
+    )
+    private int batchBytes = 5 * 1024 * 1024;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The maximum number of requests sent at the same time"
+    )
+    private int concurrency = 4;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The number of retries of the rows failing with a transient error",
+        body = "Only the failed rows of a request are sent again, with the same insert ids so BigQuery drops\n" +
+            " the ones already inserted, on a best effort basis."
+    )
+    private int maxRetries = 5;
+
+    @Builder.Default
+    @InputProperty(
+        description = "Insert all valid rows, even if invalid rows exist",
+        body = "If not set, the task fails on the first invalid row, and the other rows of the same request are\n" +
+            " not inserted."
+    )
+    private boolean skipInvalidRows = false;
+
+    @Builder.Default
+    @InputProperty(
+        description = "Accept rows that contain values that do not match the schema",
+        body = "The unknown values are ignored."
+    )
+    private boolean ignoreUnknownValues = false;
+
+    @Override
+    public Output run(RunContext runContext) throws Exception {
+        BigQuery connection = this.connection(runContext);
+        Logger logger = runContext.logger(this.getClass());
+
+        String destinationTable = runContext.render(this.destinationTable);
+        TableId tableId = Connection.tableId(destinationTable);
+
+        int batchSize = Math.min(this.batchSize, MAX_REQUEST_ROWS);
+        int batchBytes = Math.min(this.batchBytes, MAX_REQUEST_BYTES);
+
+        // insert ids are the same on each task attempt, BigQuery drops the rows it has already seen with the same
+        // id, but only on a best effort basis and for a short time, so a retried task may still insert duplicates
+        String insertIdPrefix = Connection.jobId(runContext).getJob() + "_";
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.concurrency);
+        Semaphore inFlight = new Semaphore(this.concurrency);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        List<Future<BatchResult>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            runContext.uriToInputStream(new URI(runContext.render(this.from))),
+            StandardCharsets.UTF_8
+        ))) {
+            List<InsertAllRequest.RowToInsert> batch = new ArrayList<>();
+            long bytes = 0;
+            long index = 0;
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                long rowBytes = line.getBytes(StandardCharsets.UTF_8).length + ROW_OVERHEAD_BYTES;
+
+                if (batch.size() >= batchSize || (!batch.isEmpty() && bytes + rowBytes > batchBytes)) {
+                    futures.add(this.submit(executor, inFlight, failure, connection, tableId, batch, logger));
+                    batch = new ArrayList<>();
+                    bytes = 0;
+                }
+
+                @SuppressWarnings("unchecked")
+                Map<String, Object> content = JacksonMapper.ofJson().readValue(line, Map.class);
+
+                batch.add(InsertAllRequest.RowToInsert.of(insertIdPrefix + index, content));
+                bytes += rowBytes;
+                index++;
+            }
+
+            if (!batch.isEmpty()) {
+                futures.add(this.submit(executor, inFlight, failure, connection, tableId, batch, logger));
+            }
+
+            long rows = 0;
+            long retried = 0;
+            long invalid = 0;
+
+            for (Future<BatchResult> future : futures) {
+                BatchResult result = get(future);
+
+                rows += result.getRows();
+                retried += result.getRetried();
+                invalid += result.getInvalid();
+            }
+
+            String[] tags = {"destination_table", destinationTable};
+            runContext.metric(Counter.of("insert.rows", rows, tags));
+            runContext.metric(Counter.of("insert.requests", futures.size(), tags));
+            runContext.metric(Counter.of("insert.retried.rows", retried, tags));
+            runContext.metric(Counter.of("insert.invalid.rows", invalid, tags));
+            runContext.metric(Timer.of("insert.duration", Duration.ofNanos(System.nanoTime() - start), tags));
+
+            logger.info("Inserted {} rows in {} requests to '{}'", rows, futures.size(), destinationTable);
+
+            return Output.builder()
+                .rows(rows)
+                .invalidRows(invalid)
+                .build();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Future<BatchResult> submit(ExecutorService executor, Semaphore inFlight, AtomicReference<Exception> failure, BigQuery connection, TableId tableId, List<InsertAllRequest.RowToInsert> rows, Logger logger) throws Exception {
+        // wait for a free slot before reading more rows, so only 'concurrency' batches are held in memory
+        inFlight.acquire();
+
+        // stop reading the file as soon as a batch failed, the task fails anyway
+        if (failure.get() != null) {
+            inFlight.release();
+
+            throw failure.get();
+        }
+
+        return executor.submit(() -> {
+            try {
+                return this.insert(connection, tableId, rows, logger);
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+
+                throw e;
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private BatchResult insert(BigQuery connection, TableId tableId, List<InsertAllRequest.RowToInsert> rows, Logger logger) throws IOException, InterruptedException {
+        List<InsertAllRequest.RowToInsert> pending = rows;
+        long inserted = 0;
+        long retried = 0;
+        long invalid = 0;
+
+        for (int attempt = 0; ; attempt++) {
+            InsertAllResponse response = connection.insertAll(InsertAllRequest.newBuilder(tableId)
+                .setRows(pending)
+                .setSkipInvalidRows(this.skipInvalidRows)
+                .setIgnoreUnknownValues(this.ignoreUnknownValues)
+                .build()
+            );
+
+            if (!response.hasErrors()) {
+                return new BatchResult(inserted + pending.size(), retried, invalid);
+            }
+
+            List<InsertAllRequest.RowToInsert> failed = new ArrayList<>();
+            BigQueryError firstError = null;
+            BigQueryError firstFailure = null;
+
+            for (int i = 0; i < pending.size(); i++) {
+                List<BigQueryError> errors = response.getErrorsFor(i);
+
+                if (errors == null || errors.isEmpty()) {
+                    inserted++;
+                } else if (errors.stream().allMatch(error -> RETRYABLE_REASONS.contains(error.getReason()))) {
+                    failed.add(pending.get(i));
+
+                    if (firstFailure == null) {
+                        firstFailure = errors.get(0);
+                    }
+                } else {
+                    invalid++;
+                    logger.warn("Invalid row '{}': {}", pending.get(i).getId(), errors);
+
+                    if (firstError == null) {
+                        firstError = errors.get(0);
+                    }
+                }
+            }
+
+            // without skipInvalidRows, the valid rows of the request are 'stopped' and must not be inserted alone
+            if (firstError != null && !this.skipInvalidRows) {
+                throw new IOException(invalid + " invalid rows in table '" + tableId.getTable() + "', first error: " + firstError);
+            }
+
+            if (failed.isEmpty()) {
+                return new BatchResult(inserted, retried, invalid);
+            }
+
+            if (attempt >= this.maxRetries) {
+                throw new IOException(failed.size() + " rows still failing after " + this.maxRetries + " retries, first error: " + firstFailure);
+            }
+
+            logger.debug("Retrying {} failed rows of {}", failed.size(), pending.size());
+
+            Thread.sleep(Math.min(1000L << attempt, 30_000L));
+            retried += failed.size();
+            pending = failed;
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class BatchResult {
+        private final long rows;
+        private final long retried;
+        private final long invalid;
+    }
+
+    @Builder
+    @Getter
+    public static class Output implements org.kestra.core.models.tasks.Output {
+        @OutputProperty(
+            description = "The number of rows inserted"
+        )
+        private Long rows;
+
+        @OutputProperty(
+            description = "The number of invalid rows skipped",
+            body = "Only with 'skipInvalidRows', invalid rows fail the task otherwise."
+        )
+        private Long invalidRows;
+    }
+}
@@ -0,0 +1,112 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobStatus;
+import lombok.*;
+import org.kestra.core.models.annotations.InputProperty;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.*;
+
+/**
+ * Wait for BigQuery jobs with an exponential backoff. Jobs of all the tasks are polled by a small shared
+ * scheduler, the waiting task thread is only parked until its job is done.
+ */
+@Builder
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobPolling {
+    private static final int POLLER_THREADS = 4;
+    private static final ScheduledExecutorService POLLER = Executors.newScheduledThreadPool(POLLER_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "bigquery-job-poller");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    @InputProperty(
+        description = "The delay before the first job status check",
+        body = "Default to 1 second."
+    )
+    private Duration initialInterval;
+
+    @InputProperty(
+        description = "The multiplier applied to the delay after each job status check",
+        body = "Default to 2."
+    )
+    private Double multiplier;
+
+    @InputProperty(
+        description = "The maximum delay between two job status checks",
+        body = "Default to 30 seconds."
+    )
+    private Duration maxInterval;
+
+    @InputProperty(
+        description = "The maximum duration to wait for the job",
+        body = "If not provided, wait until the job is done."
+    )
+    private Duration timeout;
+
+    public Job waitFor(Job job) throws InterruptedException, IOException {
+        return this.get(this.poll(job));
+    }
+
+    public CompletableFuture<Job> poll(Job job) {
+        CompletableFuture<Job> future = new CompletableFuture<>();
+        Instant deadline = this.timeout != null ? Instant.now().plus(this.timeout) : null;
+
+        this.schedule(job, future, this.initialInterval != null ? this.initialInterval : Duration.ofSeconds(1), deadline);
+
+        return future;
+    }
+
+    public Job get(CompletableFuture<Job> future) throws InterruptedException, IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    private void schedule(Job job, CompletableFuture<Job> future, Duration delay, Instant deadline) {
+        POLLER.schedule(() -> {
+            if (future.isDone()) {
+                return;
+            }
+
+            try {
+                Job current = job.reload();
+
+                if (current == null || current.getStatus().getState() == JobStatus.State.DONE) {
+                    future.complete(current);
+                } else if (deadline != null && Instant.now().isAfter(deadline)) {
+                    future.completeExceptionally(new IOException("Timeout after " + this.timeout + " waiting for job '" + job.getJobId().getJob() + "'"));
+                } else {
+                    this.schedule(current, future, this.next(delay), deadline);
+                }
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private Duration next(Duration delay) {
+        Duration next = Duration.ofMillis((long) (delay.toMillis() * (this.multiplier != null ? this.multiplier : 2D)));
+        Duration max = this.maxInterval != null ? this.maxInterval : Duration.ofSeconds(30);
+
+        return next.compareTo(max) > 0 ? max : next;
+    }
+}
@@ -1,26 +1,43 @@
 package org.kestra.task.gcp.bigquery;
 
-import com.google.cloud.bigquery.BigQuery;
-import com.google.cloud.bigquery.TableDataWriteChannel;
-import com.google.cloud.bigquery.WriteChannelConfiguration;
-import lombok.EqualsAndHashCode;
-import lombok.Getter;
-import lombok.NoArgsConstructor;
-import lombok.ToString;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.bigquery.*;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.apache.commons.lang3.ArrayUtils;
+import org.kestra.core.exceptions.IllegalVariableEvaluationException;
 import org.kestra.core.models.annotations.Documentation;
 import org.kestra.core.models.annotations.Example;
 import org.kestra.core.models.annotations.InputProperty;
+import org.kestra.core.models.executions.metrics.Counter;
+import org.kestra.core.models.executions.metrics.Timer;
 import org.kestra.core.models.tasks.RunnableTask;
 import org.kestra.core.runners.RunContext;
 import org.kestra.core.serializers.JacksonMapper;
 import org.slf4j.Logger;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @SuperBuilder
 @ToString
@@ -41,6 +58,7 @@ import java.nio.channels.Channels;
     description = "Load data from local file to BigQuery"
 )
 public class Load extends AbstractLoad implements RunnableTask<AbstractLoad.Output> {
+    private static final int MIN_CHUNK_SIZE = 256 * 1024;
 
     @InputProperty(
         description = "The fully-qualified URIs that point to source data",
@@ -48,6 +66,48 @@ public class Load extends AbstractLoad implements RunnableTask<AbstractLoad.Outp
     )
     private String from;
 
+    @Builder.Default
+    @InputProperty(
+        description = "The size of each upload request in bytes",
+        body = "Rounded down to a multiple of 256 KB, the resumable upload granularity. Bigger chunks mean less\n" +
+            " requests for large files, at the cost of the same amount of memory. Default to 8 MB."
+    )
+    private int chunkSize = 8 * 1024 * 1024;
+
+    @InputProperty(
+        description = "The gcs uri where the upload state is checkpointed",
+        body = "If set, like 'gs://my_bucket/checkpoints', the upload session is saved every 'checkpointBytes'\n" +
+            " bytes. A retried task restores the session and continues the upload from the last checkpoint\n" +
+            " instead of from the start.",
+        dynamic = true
+    )
+    private String checkpointUri;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The number of uploaded bytes between two checkpoints",
+        body = "Only used if 'checkpointUri' is set. Default to 256 MB."
+    )
+    private long checkpointBytes = 256L * 1024 * 1024;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The number of shards the file is split in, uploaded concurrently",
+        body = "Only for newline delimited CSV and JSON files, the file is split on record boundaries and the CSV\n" +
+            " 'skipLeadingRows' header lines are repeated in each shard. Each shard uses its own upload buffer\n" +
+            " of 'chunkSize' bytes. Checkpoints are not used with shards."
+    )
+    private int shards = 1;
+
+    @InputProperty(
+        description = "The gcs uri where the shards are staged before being loaded by a single job",
+        body = "Only used if 'shards' is set. If provided, like 'gs://my_bucket/staging', the shards are uploaded\n" +
+            " to gcs and loaded by one load job, so the table is updated atomically. If not, each shard is\n" +
+            " loaded by its own job, appending to the table once the first shard applied the 'writeDisposition'.",
+        dynamic = true
+    )
+    private String shardStagingUri;
+
     @Override
     public Output run(RunContext runContext) throws Exception {
         BigQuery connection = this.connection(runContext);
@@ -61,19 +121,337 @@ public class Load extends AbstractLoad implements RunnableTask<AbstractLoad.Outp
         WriteChannelConfiguration configuration = builder.build();
         logger.debug("Starting load\n{}", JacksonMapper.log(configuration));
 
+        if (this.shards > 1) {
+            return this.runShards(runContext, connection, logger, configuration);
+        }
+
+        JobId baseJobId = Connection.jobId(runContext);
+        List<Job> attempts = Connection.attempts(connection, baseJobId);
+        Job existing = attempts.isEmpty() ? null : attempts.get(attempts.size() - 1);
+
+        if (existing != null && existing.getStatus().getError() == null) {
+            logger.info("Attaching to existing job '{}' in state {}", existing.getJobId().getJob(), existing.getStatus().getState());
+
+            return this.execute(runContext, logger, configuration, existing);
+        }
+
+        // the upload of this attempt, its checkpoint is only found again if no job was created yet
+        JobId jobId = Connection.retryJobId(baseJobId, attempts.size());
+        Storage storage = this.checkpointUri != null ?
+            new org.kestra.task.gcp.gcs.Connection().of(runContext, connection.getOptions().getProjectId()) :
+            null;
+        UploadCheckpoint checkpoint = storage != null ?
+            new UploadCheckpoint(storage, new URI(runContext.render(this.checkpointUri)), jobId) :
+            null;
+
+        if (existing != null && storage != null) {
+            new UploadCheckpoint(storage, new URI(runContext.render(this.checkpointUri)), existing.getJobId()).delete();
+        }
+
         URI from = new URI(runContext.render(this.from));
         InputStream data = runContext.uriToInputStream(from);
 
-        TableDataWriteChannel writer = connection.writer(configuration);
-        try (OutputStream stream = Channels.newOutputStream(writer)) {
-            byte[] buffer = new byte[10_240];
+        Optional<UploadCheckpoint.State> restored = checkpoint != null ?
+            checkpoint.load() :
+            Optional.empty();
+
+        int chunkSize = chunkSize(this.chunkSize);
+        WriteChannel writer;
+        long offset = 0;
+
+        if (restored.isPresent()) {
+            offset = restored.get().getOffset();
+            writer = new ResumedUpload(connection.getOptions(), configuration, restored.get().getUploadId(), offset, chunkSize);
+
+            logger.info("Resuming upload from checkpoint at byte {}", offset);
+            runContext.metric(Counter.of("upload.resumed.bytes", offset, "destination_table", runContext.render(this.destinationTable)));
+
+            skip(data, offset);
+        } else {
+            writer = connection.writer(jobId, configuration);
+            writer.setChunkSize(chunkSize);
+        }
+
+        long start = System.nanoTime();
+        long bytes = 0;
+        long checkpointed = 0;
 
-            int limit;
-            while ((limit = data.read(buffer)) >= 0) {
-                writer.write(ByteBuffer.wrap(buffer, 0, limit));
+        try (ReadableByteChannel input = data instanceof FileInputStream ? ((FileInputStream) data).getChannel() : Channels.newChannel(data)) {
+            // a heap buffer: the BigQuery TableDataWriteChannel copies each chunk into its own array anyway, and
+            // direct buffers are only released when collected, so one per execution (or shard) would pile up
+            // outside the heap
+            ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+            boolean end = false;
+
+            while (!end) {
+                end = input.read(buffer) < 0;
+
+                // only full chunks are written before the end, so the writer flushes everything it gets and
+                // a checkpoint never depends on bytes buffered in memory
+                if (!end && buffer.hasRemaining()) {
+                    continue;
+                }
+
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    bytes += writer.write(buffer);
+                }
+                buffer.clear();
+
+                if (checkpoint != null && !end && bytes - checkpointed >= this.checkpointBytes) {
+                    checkpoint.save(writer, offset + bytes);
+                    checkpointed = bytes;
+                }
             }
         }
 
-        return this.execute(runContext, logger, configuration, writer.getJob());
+        // only closed on success, closing the channel commits the upload and starts the load job
+        writer.close();
+
+        if (checkpoint != null) {
+            checkpoint.delete();
+        }
+
+        this.uploadMetrics(runContext, bytes, Duration.ofNanos(System.nanoTime() - start));
+
+        return this.execute(runContext, logger, configuration, connection.getJob(jobId));
+    }
+
+    private Output runShards(RunContext runContext, BigQuery connection, Logger logger, WriteChannelConfiguration configuration) throws Exception {
+        if (this.getFormat() != Format.CSV && this.getFormat() != Format.JSON) {
+            throw new IllegalArgumentException("'shards' is only supported for CSV and JSON formats");
+        }
+
+        CsvOptions csvOptions = this.getCsvOptions();
+        if (csvOptions != null && Boolean.TRUE.equals(csvOptions.getAllowQuotedNewLines())) {
+            throw new IllegalArgumentException("'shards' can't be used with 'allowQuotedNewLines', records can't be split on lines");
+        }
+
+        long headerLines = this.getFormat() == Format.CSV && csvOptions != null && csvOptions.getSkipLeadingRows() != null ?
+            csvOptions.getSkipLeadingRows() :
+            0;
+
+        File tempFile = null;
+        InputStream data = runContext.uriToInputStream(new URI(runContext.render(this.from)));
+
+        if (!(data instanceof FileInputStream)) {
+            tempFile = File.createTempFile(this.getClass().getSimpleName().toLowerCase() + "_", ".tmp");
+
+            try (InputStream input = data) {
+                Files.copy(input, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            data = new FileInputStream(tempFile);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.shards);
+
+        try (FileChannel file = ((FileInputStream) data).getChannel()) {
+            FileShards fileShards = new FileShards(file, headerLines, this.shards);
+            logger.info("Loading {} bytes in {} shards", file.size(), fileShards.size());
+
+            return this.shardStagingUri != null ?
+                this.stagedShards(runContext, connection, logger, configuration, fileShards, executor) :
+                this.appendedShards(runContext, connection, logger, configuration, fileShards, executor);
+        } finally {
+            executor.shutdownNow();
+
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private Output appendedShards(RunContext runContext, BigQuery connection, Logger logger, WriteChannelConfiguration configuration, FileShards fileShards, ExecutorService executor) throws Exception {
+        JobId jobId = Connection.jobId(runContext);
+        List<Output> outputs = new ArrayList<>();
+        int first = 0;
+
+        // truncate or empty dispositions are applied by the first shard, the others append once it's loaded
+        if (configuration.getWriteDisposition() != null && configuration.getWriteDisposition() != JobInfo.WriteDisposition.WRITE_APPEND) {
+            ShardUpload upload = this.uploadShard(connection, logger, configuration, fileShards, 0, jobId);
+            this.uploadMetrics(runContext, upload.getBytes(), upload.getDuration(), "shard", "0");
+            outputs.add(this.execute(runContext, logger, configuration, upload.getJob()));
+
+            configuration = configuration.toBuilder()
+                .setWriteDisposition(JobInfo.WriteDisposition.WRITE_APPEND)
+                .build();
+            first = 1;
+        }
+
+        WriteChannelConfiguration shardConfiguration = configuration;
+        List<Future<ShardUpload>> futures = new ArrayList<>();
+
+        for (int i = first; i < fileShards.size(); i++) {
+            if (i > 0 && fileShards.isEmpty(i)) {
+                continue;
+            }
+
+            int shard = i;
+            futures.add(executor.submit(() -> this.uploadShard(connection, logger, shardConfiguration, fileShards, shard, jobId)));
+        }
+
+        // uploads run concurrently, metrics and job waits stay on the task thread
+        for (Future<ShardUpload> future : futures) {
+            ShardUpload upload = get(future);
+            this.uploadMetrics(runContext, upload.getBytes(), upload.getDuration(), "shard", String.valueOf(upload.getShard()));
+            outputs.add(this.execute(runContext, logger, shardConfiguration, upload.getJob()));
+        }
+
+        return Output.builder()
+            .jobId(outputs.get(0).getJobId())
+            .destinationTable(outputs.get(0).getDestinationTable())
+            .rows(outputs.stream().mapToLong(output -> output.getRows() != null ? output.getRows() : 0).sum())
+            .build();
+    }
+
+    private ShardUpload uploadShard(BigQuery connection, Logger logger, WriteChannelConfiguration configuration, FileShards fileShards, int shard, JobId baseJobId) throws IOException {
+        JobId shardJobId = baseJobId.toBuilder().setJob(baseJobId.getJob() + "_" + shard).build();
+        List<Job> attempts = Connection.attempts(connection, shardJobId);
+        Job existing = attempts.isEmpty() ? null : attempts.get(attempts.size() - 1);
+
+        if (existing != null && existing.getStatus().getError() == null) {
+            logger.info("Attaching shard {} to existing job '{}' in state {}", shard, existing.getJobId().getJob(), existing.getStatus().getState());
+
+            return new ShardUpload(shard, existing, 0, Duration.ZERO);
+        }
+
+        JobId jobId = Connection.retryJobId(shardJobId, attempts.size());
+
+        long start = System.nanoTime();
+        TableDataWriteChannel writer = connection.writer(jobId, configuration);
+        writer.setChunkSize(this.chunkSize);
+
+        long bytes = fileShards.copy(shard, writer, this.chunkSize);
+        writer.close();
+
+        return new ShardUpload(shard, writer.getJob(), bytes, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private Output stagedShards(RunContext runContext, BigQuery connection, Logger logger, WriteChannelConfiguration configuration, FileShards fileShards, ExecutorService executor) throws Exception {
+        JobId baseJobId = Connection.jobId(runContext);
+        List<Job> attempts = Connection.attempts(connection, baseJobId);
+        Job existing = attempts.isEmpty() ? null : attempts.get(attempts.size() - 1);
+
+        if (existing != null && existing.getStatus().getError() == null) {
+            logger.info("Attaching to existing job '{}' in state {}", existing.getJobId().getJob(), existing.getStatus().getState());
+
+            return this.execute(runContext, logger, configuration, existing);
+        }
+
+        JobId jobId = Connection.retryJobId(baseJobId, attempts.size());
+
+        Storage storage = new org.kestra.task.gcp.gcs.Connection().of(runContext, connection.getOptions().getProjectId());
+        URI staging = new URI(runContext.render(this.shardStagingUri));
+        String prefix = staging.getPath().length() > 1 ? staging.getPath().substring(1) : "";
+        prefix = (prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/") + jobId.getJob() + "/";
+
+        List<BlobId> blobs = new ArrayList<>();
+        List<Future<ShardUpload>> futures = new ArrayList<>();
+
+        for (int i = 0; i < fileShards.size(); i++) {
+            if (i > 0 && fileShards.isEmpty(i)) {
+                continue;
+            }
+
+            int shard = i;
+            BlobId blobId = BlobId.of(staging.getAuthority(), prefix + "shard-" + i);
+            blobs.add(blobId);
+
+            futures.add(executor.submit(() -> {
+                long start = System.nanoTime();
+                long bytes;
+
+                try (WriteChannel writer = storage.writer(BlobInfo.newBuilder(blobId).build())) {
+                    writer.setChunkSize(this.chunkSize);
+                    bytes = fileShards.copy(shard, writer, this.chunkSize);
+                }
+
+                return new ShardUpload(shard, null, bytes, Duration.ofNanos(System.nanoTime() - start));
+            }));
+        }
+
+        try {
+            for (Future<ShardUpload> future : futures) {
+                ShardUpload upload = get(future);
+                this.uploadMetrics(runContext, upload.getBytes(), upload.getDuration(), "shard", String.valueOf(upload.getShard()));
+            }
+
+            List<String> uris = new ArrayList<>();
+            for (BlobId blob : blobs) {
+                uris.add("gs://" + blob.getBucket() + "/" + blob.getName());
+            }
+
+            LoadJobConfiguration.Builder builder = LoadJobConfiguration.newBuilder(configuration.getDestinationTable(), uris);
+            this.setOptions(builder);
+
+            LoadJobConfiguration loadConfiguration = builder.build();
+            Job job = Connection.createOrAttach(
+                connection,
+                JobInfo.newBuilder(loadConfiguration).setJobId(jobId).build(),
+                logger
+            );
+
+            return this.execute(runContext, logger, loadConfiguration, job);
+        } finally {
+            storage.delete(blobs);
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * The chunk size used by the upload channels, a multiple of the 256 KB resumable upload granularity.
+     */
+    static int chunkSize(int chunkSize) {
+        return Math.max(MIN_CHUNK_SIZE, chunkSize / MIN_CHUNK_SIZE * MIN_CHUNK_SIZE);
+    }
+
+    private static void skip(InputStream data, long bytes) throws IOException {
+        long remaining = bytes;
+
+        while (remaining > 0) {
+            long skipped = data.skip(remaining);
+
+            if (skipped <= 0) {
+                if (data.read() < 0) {
+                    throw new IOException("Input is shorter than the checkpointed upload");
+                }
+
+                skipped = 1;
+            }
+
+            remaining -= skipped;
+        }
+    }
+
+    private void uploadMetrics(RunContext runContext, long bytes, Duration duration, String... tags) throws IllegalVariableEvaluationException {
+        tags = ArrayUtils.addAll(new String[]{"destination_table", runContext.render(this.destinationTable)}, tags);
+
+        runContext.metric(Counter.of("upload.bytes", bytes, tags));
+        runContext.metric(Timer.of("upload.duration", duration, tags));
+
+        if (!duration.isZero()) {
+            runContext.metric(Counter.of("upload.bytes.per.second", bytes * 1_000_000_000D / duration.toNanos(), tags));
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class ShardUpload {
+        private final int shard;
+        private final Job job;
+        private final long bytes;
+        private final Duration duration;
     }
 }
@@ -66,7 +66,13 @@ public class LoadFromGcs extends AbstractLoad implements RunnableTask<AbstractLo
         this.setOptions(builder);
 
         LoadJobConfiguration configuration = builder.build();
-        Job loadJob = connection.create(JobInfo.of(configuration));
+        Job loadJob = Connection.createOrAttach(
+            connection,
+            JobInfo.newBuilder(configuration)
+                .setJobId(Connection.jobId(runContext))
+                .build(),
+            logger
+        );
 
         logger.debug("Starting query\n{}", JacksonMapper.log(configuration));
 
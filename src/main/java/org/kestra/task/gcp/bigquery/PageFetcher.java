@@ -0,0 +1,98 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.api.gax.paging.Page;
+import com.google.cloud.bigquery.FieldValueList;
+import com.google.common.collect.Iterables;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Fetch result pages in the background while the previous ones are converted and consumed.
+ * At most {@code prefetchPages} pages are fetched ahead, pages are converted on {@code threads} threads
+ * and rows are always consumed in the result order. Fetching stops once {@code limit} rows are consumed.
+ */
+public class PageFetcher {
+    private static final Future<List<Map<String, Object>>> END = CompletableFuture.completedFuture(null);
+
+    private final int prefetchPages;
+    private final int threads;
+
+    public PageFetcher(int prefetchPages, int threads) {
+        this.prefetchPages = prefetchPages;
+        this.threads = threads;
+    }
+
+    public long fetch(Page<FieldValueList> first, FieldValueConverter converter, long limit, Consumer<Map<String, Object>> consumer) throws IOException, InterruptedException {
+        BlockingQueue<Future<List<Map<String, Object>>>> pages = new ArrayBlockingQueue<>(this.prefetchPages);
+        ExecutorService fetcher = Executors.newSingleThreadExecutor();
+        ExecutorService converters = Executors.newFixedThreadPool(this.threads);
+
+        try {
+            fetcher.execute(() -> {
+                try {
+                    Future<List<Map<String, Object>>> last;
+
+                    try {
+                        Page<FieldValueList> page = first;
+                        long fetched = 0;
+
+                        while (page != null) {
+                            Iterable<FieldValueList> values = page.getValues();
+                            pages.put(converters.submit(() -> convert(values, converter)));
+                            fetched += Iterables.size(values);
+
+                            // no need for the next page once the limit is reached
+                            page = fetched < limit && page.hasNextPage() ? page.getNextPage() : null;
+                        }
+
+                        last = END;
+                    } catch (RuntimeException e) {
+                        CompletableFuture<List<Map<String, Object>>> failed = new CompletableFuture<>();
+                        failed.completeExceptionally(e);
+                        last = failed;
+                    }
+
+                    pages.put(last);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            long count = 0;
+            Future<List<Map<String, Object>>> next;
+
+            while (count < limit && (next = pages.take()) != END) {
+                for (Map<String, Object> row : next.get()) {
+                    if (count >= limit) {
+                        break;
+                    }
+
+                    consumer.accept(row);
+                    count++;
+                }
+            }
+
+            return count;
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            fetcher.shutdownNow();
+            converters.shutdownNow();
+        }
+    }
+
+    private static List<Map<String, Object>> convert(Iterable<FieldValueList> values, FieldValueConverter converter) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        for (FieldValueList fieldValues : values) {
+            rows.add(converter.convert(fieldValues));
+        }
+
+        return rows;
+    }
+}
@@ -0,0 +1,122 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.cloud.bigquery.RangePartitioning;
+import com.google.cloud.bigquery.TimePartitioning;
+import lombok.*;
+import org.kestra.core.models.annotations.InputProperty;
+
+import java.time.Duration;
+
+/**
+ * Partitioning options of a destination table, shared by the query and the load tasks.
+ */
+@Builder(toBuilder = true)
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Partitioning {
+    @InputProperty(
+        description = "The date or timestamp column used to partition the destination table by time"
+    )
+    private String timeField;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The time partitioning type for the destination table",
+        body = "Only used if 'timeField' is set, by default tables are partitioned by day."
+    )
+    private TimePartitioning.Type timeType = TimePartitioning.Type.DAY;
+
+    @InputProperty(
+        description = "How long the time partitions of the destination table are kept",
+        body = "Only used if 'timeField' is set. By default partitions never expire."
+    )
+    private Duration expiration;
+
+    @InputProperty(
+        description = "Whether queries over the destination table must specify a partition filter",
+        body = "Only used if 'timeField' is set."
+    )
+    private Boolean requireFilter;
+
+    @InputProperty(
+        description = "The integer column used to partition the destination table by range",
+        body = "Requires 'rangeStart', 'rangeEnd' and 'rangeInterval'."
+    )
+    private String rangeField;
+
+    @InputProperty(
+        description = "The start of the range partitioning, inclusive"
+    )
+    private Long rangeStart;
+
+    @InputProperty(
+        description = "The end of the range partitioning, exclusive"
+    )
+    private Long rangeEnd;
+
+    @InputProperty(
+        description = "The width of each range partition"
+    )
+    private Long rangeInterval;
+
+    /**
+     * The partitioning of a task, with its deprecated top-level 'timePartitioningField' used as the time field.
+     */
+    public static Partitioning of(Partitioning partitioning, String timePartitioningField) {
+        Partitioning of = partitioning != null ? partitioning : Partitioning.builder().build();
+
+        if (timePartitioningField == null) {
+            return of;
+        }
+
+        if (of.timeField != null && !of.timeField.equals(timePartitioningField)) {
+            throw new IllegalArgumentException("'timePartitioningField' is deprecated and conflicts with 'partitioning.timeField', only set the latter");
+        }
+
+        return of.toBuilder()
+            .timeField(timePartitioningField)
+            .build();
+    }
+
+    public TimePartitioning timePartitioning() {
+        if (this.timeField == null) {
+            return null;
+        }
+
+        TimePartitioning.Builder builder = TimePartitioning.newBuilder(this.timeType)
+            .setField(this.timeField);
+
+        if (this.expiration != null) {
+            builder.setExpirationMs(this.expiration.toMillis());
+        }
+
+        if (this.requireFilter != null) {
+            builder.setRequirePartitionFilter(this.requireFilter);
+        }
+
+        return builder.build();
+    }
+
+    public RangePartitioning rangePartitioning() {
+        if (this.rangeField == null) {
+            return null;
+        }
+
+        if (this.rangeStart == null || this.rangeEnd == null || this.rangeInterval == null) {
+            throw new IllegalArgumentException("'rangeField' requires 'rangeStart', 'rangeEnd' and 'rangeInterval'");
+        }
+
+        return RangePartitioning.newBuilder()
+            .setField(this.rangeField)
+            .setRange(RangePartitioning.Range.newBuilder()
+                .setStart(this.rangeStart)
+                .setEnd(this.rangeEnd)
+                .setInterval(this.rangeInterval)
+                .build()
+            )
+            .build();
+    }
+}
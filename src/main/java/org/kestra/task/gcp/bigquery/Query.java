@@ -1,5 +1,6 @@
 package org.kestra.task.gcp.bigquery;
 
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.cloud.bigquery.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
@@ -16,16 +17,16 @@ import org.kestra.core.runners.RunContext;
 import org.kestra.core.serializers.JacksonMapper;
 import org.slf4j.Logger;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.Duration;
-import java.time.Instant;
-import java.time.LocalDate;
-import java.time.LocalTime;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.function.Consumer;
 
 @SuperBuilder
 @ToString
@@ -72,6 +73,21 @@ import java.util.stream.StreamSupport;
         "    {{/each}}"
     }
 )
+@Example(
+    title = "Aggregate only the rows added since the previous run",
+    code = {
+        "destinationTable: \"my_project.my_dataset.hourly_orders\"",
+        "writeDisposition: WRITE_APPEND",
+        "watermark:",
+        "  uri: gs://my_bucket/watermarks/hourly_orders.json",
+        "  sql: SELECT MAX(created_at) FROM `my_project.my_dataset.orders`",
+        "sql: |",
+        "  SELECT TIMESTAMP_TRUNC(created_at, HOUR) AS hour, SUM(amount) AS amount",
+        "  FROM `my_project.my_dataset.orders`",
+        "  WHERE (@watermark_from IS NULL OR created_at > @watermark_from) AND created_at <= @watermark_to",
+        "  GROUP BY hour"
+    }
+)
 @Documentation(
     description = "Execute BigQuery SQL query in a specific BigQuery database"
 )
@@ -101,9 +117,69 @@ public class Query extends AbstractBigquery implements RunnableTask<Query.Output
     )
     private boolean fetchOne = false;
 
-    // private List<String> positionalParameters;
+    @InputProperty(
+        description = "The maximum number of rows to fetch or store",
+        body = "Paging stops as soon as the limit is reached. When set, the Storage Read API is not used."
+    )
+    private Long maxRows;
+
+    @Builder.Default
+    @InputProperty(
+        description = "Whether to store the data from the query result into an internal storage file",
+        body = "Rows are streamed page by page into a file with one json row per line, so memory usage doesn't\n" +
+            " depend on the result size. The file uri is available in the 'uri' output."
+    )
+    private boolean store = false;
+
+    @Builder.Default
+    @InputProperty(
+        description = "Whether to read the query result with the BigQuery Storage Read API",
+        body = "Used for 'fetch' and 'store', the result table is read with several parallel streams, which is\n" +
+            " a lot faster than paging for large results. Rows order is not preserved. Scripts are always\n" +
+            " fetched without the Storage Read API."
+    )
+    private boolean storageApi = false;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The maximum number of parallel streams used by the Storage Read API",
+        body = "BigQuery can decide to use less streams than requested, depending on the result size."
+    )
+    private int storageApiStreams = 4;
+
+    @InputProperty(
+        description = "The number of rows fetched on each result page",
+        body = "If not provided, BigQuery choose the page size, limited to 10 MB per page."
+    )
+    private Long pageSize;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The number of result pages fetched in background while the current one is converted",
+        body = "By default pages are fetched and converted one after the other."
+    )
+    private int prefetchPages = 0;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The number of threads converting prefetched pages",
+        body = "Only used if 'prefetchPages' is set, rows are always returned in the result order."
+    )
+    private int fetchThreads = 1;
+
+    @InputProperty(
+        description = "Positional query parameters, referenced with '?' in the sql",
+        body = "Using parameters instead of rendering values in the sql keeps the same query text between runs,\n" +
+            " allowing BigQuery to reuse cached results."
+    )
+    private List<QueryParameter> positionalParameters;
 
-    // private Map<String, String> namedParameters;
+    @InputProperty(
+        description = "Named query parameters, referenced with '@name' in the sql",
+        body = "Using parameters instead of rendering values in the sql keeps the same query text between runs,\n" +
+            " allowing BigQuery to reuse cached results."
+    )
+    private Map<String, QueryParameter> namedParameters;
 
     @InputProperty(
         description = "The clustering specification for the destination table"
@@ -126,11 +202,20 @@ public class Query extends AbstractBigquery implements RunnableTask<Query.Output
     )
     private List<JobInfo.SchemaUpdateOption> schemaUpdateOptions;
 
+    @Deprecated
     @InputProperty(
-        description = "The time partitioning specification for the destination table"
+        description = "The time partitioning field for the destination table",
+        body = "Deprecated, use 'partitioning.timeField' instead."
     )
     private String timePartitioningField;
 
+    @InputProperty(
+        description = "The partitioning options for the destination table",
+        body = "The time partitioning field, type, expiration and partition filter requirement, or an integer\n" +
+            " range partitioning."
+    )
+    private Partitioning partitioning;
+
     @InputProperty(
         description = "The action that should occur if the destination table already exists"
     )
@@ -141,6 +226,92 @@ public class Query extends AbstractBigquery implements RunnableTask<Query.Output
     )
     private JobInfo.CreateDisposition createDisposition;
 
+    @InputProperty(
+        description = "Limits the bytes billed for this job",
+        body = "Queries that will have bytes billed beyond this limit will fail (without incurring a\n" +
+            " charge). If unspecified, this will be set to your project default."
+    )
+    private Long maximumBytesBilled;
+
+    @Builder.Default
+    @InputProperty(
+        description = "Whether to run the query as a dry run first to estimate the bytes processed",
+        body = "The estimation is sent as the 'estimated.bytes.processed' metric, tagged with 'dry_run'."
+    )
+    private boolean preflight = false;
+
+    @InputProperty(
+        description = "The maximum bytes processed estimated by the dry run",
+        body = "Only used if 'preflight' is set, when exceeded the 'preflightAction' is applied."
+    )
+    private Long preflightMaxBytes;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The action when the dry run estimation exceeds 'preflightMaxBytes'",
+        body = "FAIL stops the task before running the query, BATCH runs the query with batch priority."
+    )
+    private PreflightAction preflightAction = PreflightAction.FAIL;
+
+    @InputProperty(
+        description = "How long fetched results can be reused from the worker cache",
+        body = "If set, the fetched rows are cached on the worker local disk, keyed by the rendered sql, the\n" +
+            " legacy sql flag and the project. A query with the same key run before the ttl expires returns\n" +
+            " the cached rows without creating a job. Only used with 'fetch' or 'fetchOne' and without\n" +
+            " 'destinationTable'."
+    )
+    private Duration resultCacheTtl;
+
+    @Builder.Default
+    @InputProperty(
+        description = "Whether to run the query with the synchronous jobs.query endpoint",
+        body = "BigQuery waits up to 'shortQueryTimeout' for the query and returns the first result page with the\n" +
+            " response, in one call instead of creating a job, polling it and fetching its results. If the query\n" +
+            " takes longer or the result needs more than one page, the task waits for the job as usual.\n" +
+            " The synchronous call can't be cancelled: if the task is killed during the call, the query is not\n" +
+            " cancelled and runs to its end, only the job waited for afterwards is. Keep 'shortQueryTimeout' low.\n" +
+            " Ignored with 'store', 'storeProfile', 'planMetrics', 'destinationTable' or any destination table option."
+    )
+    private boolean shortQuery = false;
+
+    @Builder.Default
+    @InputProperty(
+        description = "How long BigQuery waits for a short query before the task falls back to waiting for the job",
+        body = "Only used if 'shortQuery' is set."
+    )
+    private Duration shortQueryTimeout = Duration.ofSeconds(10);
+
+    @Builder.Default
+    @InputProperty(
+        description = "Whether to send the query plan stages as metrics",
+        body = "For each stage, the duration, the average wait, read, compute and write times and ratios, the\n" +
+            " records read and written and the shuffle output bytes, tagged with the stage name."
+    )
+    private boolean planMetrics = false;
+
+    @Builder.Default
+    @InputProperty(
+        description = "Whether to store the query plan and timeline into an internal storage json file",
+        body = "The file uri is available in the 'profileUri' output."
+    )
+    private boolean storeProfile = false;
+
+    @InputProperty(
+        description = "Run the query incrementally, only on the data added since the previous run",
+        body = "The watermark of the previous run and the new one are passed to the query as the\n" +
+            " '@watermark_from' and '@watermark_to' named parameters, like\n" +
+            " 'WHERE updated_at > @watermark_from AND updated_at <= @watermark_to'. The watermark is only\n" +
+            " advanced once the query succeeded, and the query is skipped when there is no new data.\n" +
+            " Can't be used with 'positionalParameters'."
+    )
+    private Watermark watermark;
+
+    @InputProperty(
+        description = "How to wait for the BigQuery job",
+        body = "The delays between job status checks and the maximum duration to wait for the job."
+    )
+    private JobPolling polling;
+
     @Override
     public Query.Output run(RunContext runContext) throws Exception {
         BigQuery connection = this.connection(runContext);
@@ -148,16 +319,83 @@ public class Query extends AbstractBigquery implements RunnableTask<Query.Output
 
         QueryJobConfiguration jobConfiguration = this.jobConfiguration(runContext);
 
+        if (this.watermark == null) {
+            return this.run(runContext, connection, jobConfiguration, logger);
+        }
+
+        Watermark.Range range = this.watermark.range(
+            runContext,
+            connection,
+            job -> this.waitFor(runContext, this.polling, job, logger),
+            logger
+        );
+
+        if (range.isEmpty()) {
+            logger.info("No new data since watermark '{}', skipping the query", range.getFrom());
+
+            return Output.builder()
+                .watermark(range.getFrom())
+                .build();
+        }
+
+        Output output = this.run(runContext, connection, range.parameters(jobConfiguration), logger);
+        this.watermark.commit(range, logger);
+
+        return output.toBuilder()
+            .watermark(range.getTo())
+            .build();
+    }
+
+    private Query.Output run(RunContext runContext, BigQuery connection, QueryJobConfiguration jobConfiguration, Logger logger) throws Exception {
+        String cacheKey = this.resultCacheKey(connection, jobConfiguration);
+        if (cacheKey != null) {
+            Optional<List<Map<String, Object>>> cached = QueryResultCache.get(cacheKey, this.resultCacheTtl);
+            runContext.metric(Counter.of(cached.isPresent() ? "result.cache.hit" : "result.cache.miss", 1));
+
+            if (cached.isPresent()) {
+                logger.debug("Query result found in the worker cache");
+
+                return this.fetch ?
+                    Output.builder().rows(cached.get()).build() :
+                    Output.builder().row(cached.get().get(0)).build();
+            }
+        }
+
+        if (this.preflight) {
+            jobConfiguration = this.preflight(runContext, connection, jobConfiguration, logger);
+        }
+
         logger.debug("Starting query\n{}", JacksonMapper.log(jobConfiguration));
 
-        Job queryJob = connection
-            .create(JobInfo.newBuilder(jobConfiguration)
-                .setJobId(Connection.jobId(runContext))
-                .build()
+        Job queryJob = null;
+
+        if (this.isShortQuery(jobConfiguration)) {
+            long start = System.nanoTime();
+            ShortQuery.Result result = new ShortQuery(this.shortQueryTimeout, this.shortQueryMaxResults())
+                .run(connection, jobConfiguration, Connection.jobId(runContext), this.shortQueryLimit());
+
+            if (result.isComplete()) {
+                return this.shortQueryOutput(runContext, result, Duration.ofNanos(System.nanoTime() - start), cacheKey);
+            }
+
+            logger.debug("Short query '{}' not complete, waiting for the job", result.getJobId().getJob());
+            queryJob = connection.getJob(result.getJobId());
+        }
+
+        if (queryJob == null) {
+            queryJob = Connection.createOrAttach(
+                connection,
+                JobInfo.newBuilder(jobConfiguration)
+                    .setJobId(Connection.jobId(runContext))
+                    .build(),
+                logger
             );
+        }
 
         Connection.handleErrors(queryJob, logger);
-        queryJob = queryJob.waitFor();
+        if (queryJob.getStatus().getState() != JobStatus.State.DONE) {
+            queryJob = this.waitFor(runContext, this.polling, queryJob, logger);
+        }
         Connection.handleErrors(queryJob, logger);
 
         this.metrics(runContext, queryJob.getStatistics(), queryJob);
@@ -165,25 +403,149 @@ public class Query extends AbstractBigquery implements RunnableTask<Query.Output
         Output.OutputBuilder output = Output.builder()
             .jobId(queryJob.getJobId().getJob());
 
-        if (this.fetch || this.fetchOne) {
-            TableResult result = queryJob.getQueryResults();
+        if (this.storeProfile) {
+            output.profileUri(QueryProfile.store(runContext, queryJob));
+        }
+
+        if (this.store) {
+            this.storeResult(runContext, queryJob, output);
+        } else if (this.fetch) {
+            JobStatistics.QueryStatistics stats = queryJob.getStatistics();
+            List<Map<String, Object>> rows = stats.getSchema() != null ?
+                new ColumnarRows(stats.getSchema().getFields()) :
+                new ArrayList<>();
+            this.readResult(runContext, queryJob, rows::add);
+
+            output.rows(rows);
+
+            if (cacheKey != null) {
+                QueryResultCache.put(cacheKey, rows);
+            }
+        } else if (this.fetchOne) {
+            Map<String, Object> row = this.fetchOne(queryJob);
+
+            output.row(row);
 
-            if (fetch) {
-                output.rows(this.fetchResult(result));
-            } else {
-                output.row(this.fetchResult(result).get(0));
+            if (cacheKey != null) {
+                QueryResultCache.put(cacheKey, Collections.singletonList(row));
             }
         }
 
         return output.build();
     }
 
+    private boolean isShortQuery(QueryJobConfiguration jobConfiguration) {
+        // the synchronous endpoint doesn't return the query plan, profiles and plan metrics need the job
+        return this.shortQuery &&
+            !this.store &&
+            !this.storeProfile &&
+            !this.planMetrics &&
+            jobConfiguration.getDestinationTable() == null &&
+            jobConfiguration.getClustering() == null &&
+            jobConfiguration.getTimePartitioning() == null &&
+            jobConfiguration.getRangePartitioning() == null &&
+            jobConfiguration.getSchemaUpdateOptions() == null &&
+            jobConfiguration.getPriority() != QueryJobConfiguration.Priority.BATCH;
+    }
+
+    private long shortQueryLimit() {
+        if (this.fetchOne) {
+            return 1;
+        } else if (this.fetch) {
+            return this.maxRows != null ? this.maxRows : Long.MAX_VALUE;
+        } else {
+            return 0;
+        }
+    }
+
+    private Long shortQueryMaxResults() {
+        if (!this.fetch) {
+            return this.shortQueryLimit();
+        }
+
+        return this.maxRows != null && (this.pageSize == null || this.pageSize > this.maxRows) ? this.maxRows : this.pageSize;
+    }
+
+    private Output shortQueryOutput(RunContext runContext, ShortQuery.Result result, Duration duration, String cacheKey) throws IOException {
+        String[] tags = {
+            "short_query", "true",
+            "fetch", this.fetch || this.fetchOne ? "true" : "false",
+            "projectId", result.getJobId().getProject(),
+            "location", result.getJobId().getLocation(),
+        };
+
+        if (result.getTotalBytesProcessed() != null) {
+            runContext.metric(Counter.of("total.bytes.processed", result.getTotalBytesProcessed(), tags));
+        }
+
+        if (result.getNumDmlAffectedRows() != null) {
+            runContext.metric(Counter.of("num.dml.affected.rows", result.getNumDmlAffectedRows(), tags));
+        }
+
+        if (result.getCacheHit() != null) {
+            runContext.metric(Counter.of("cache.hit", result.getCacheHit() ? 1 : 0, tags));
+        }
+
+        runContext.metric(Timer.of("duration", duration, tags));
+
+        Output.OutputBuilder output = Output.builder()
+            .jobId(result.getJobId().getJob());
+
+        List<Map<String, Object>> rows = result.getRows() != null ? result.getRows() : Collections.emptyList();
+
+        if (this.fetch) {
+            output.rows(rows);
+
+            if (cacheKey != null) {
+                QueryResultCache.put(cacheKey, rows);
+            }
+        } else if (this.fetchOne) {
+            Map<String, Object> row = rows.isEmpty() ? null : rows.get(0);
+
+            output.row(row);
+
+            if (cacheKey != null) {
+                QueryResultCache.put(cacheKey, Collections.singletonList(row));
+            }
+        }
+
+        return output.build();
+    }
+
+    private String resultCacheKey(BigQuery connection, QueryJobConfiguration jobConfiguration) {
+        if (this.resultCacheTtl == null || this.store || this.destinationTable != null || !(this.fetch || this.fetchOne)) {
+            return null;
+        }
+
+        return QueryResultCache.key(
+            connection.getOptions().getProjectId(),
+            connection.getOptions().getLocation(),
+            connection.getOptions().getCredentials(),
+            this.legacySql,
+            jobConfiguration.getQuery(),
+            String.valueOf(jobConfiguration.getPositionalParameters()) + jobConfiguration.getNamedParameters(),
+            this.fetch ? "fetch:" + this.maxRows : "fetchOne"
+        );
+    }
+
     protected QueryJobConfiguration jobConfiguration(RunContext runContext) throws IllegalVariableEvaluationException {
         String sql = runContext.render(this.sql);
 
         QueryJobConfiguration.Builder builder = QueryJobConfiguration.newBuilder(sql)
             .setUseLegacySql(this.legacySql);
 
+        if (this.positionalParameters != null) {
+            for (QueryParameter parameter : this.positionalParameters) {
+                builder.addPositionalParameter(parameter.to(runContext));
+            }
+        }
+
+        if (this.namedParameters != null) {
+            for (Map.Entry<String, QueryParameter> parameter : this.namedParameters.entrySet()) {
+                builder.addNamedParameter(parameter.getKey(), parameter.getValue().to(runContext));
+            }
+        }
+
         if (this.clusteringFields != null) {
             builder.setClustering(Clustering.newBuilder().setFields(this.clusteringFields).build());
         }
@@ -196,11 +558,16 @@ public class Query extends AbstractBigquery implements RunnableTask<Query.Output
             builder.setSchemaUpdateOptions(this.schemaUpdateOptions);
         }
 
-        if (this.timePartitioningField != null) {
-            builder.setTimePartitioning(TimePartitioning.newBuilder(TimePartitioning.Type.DAY)
-                .setField(this.timePartitioningField)
-                .build()
-            );
+        Partitioning partitioning = Partitioning.of(this.partitioning, this.timePartitioningField);
+
+        TimePartitioning timePartitioning = partitioning.timePartitioning();
+        if (timePartitioning != null) {
+            builder.setTimePartitioning(timePartitioning);
+        }
+
+        RangePartitioning rangePartitioning = partitioning.rangePartitioning();
+        if (rangePartitioning != null) {
+            builder.setRangePartitioning(rangePartitioning);
         }
 
         if (this.writeDisposition != null) {
@@ -211,10 +578,48 @@ public class Query extends AbstractBigquery implements RunnableTask<Query.Output
             builder.setCreateDisposition(this.createDisposition);
         }
 
+        if (this.maximumBytesBilled != null) {
+            builder.setMaximumBytesBilled(this.maximumBytesBilled);
+        }
+
         return builder.build();
     }
 
-    @Builder
+    private QueryJobConfiguration preflight(RunContext runContext, BigQuery connection, QueryJobConfiguration jobConfiguration, Logger logger) throws IllegalVariableEvaluationException {
+        Job dryRun = connection.create(JobInfo.of(jobConfiguration.toBuilder().setDryRun(true).build()));
+        JobStatistics.QueryStatistics stats = dryRun.getStatistics();
+        Long bytes = stats.getTotalBytesProcessed();
+
+        if (bytes == null) {
+            return jobConfiguration;
+        }
+
+        String[] tags = {"dry_run", "true"};
+
+        if (this.destinationTable != null) {
+            tags = ArrayUtils.addAll(tags, "destination_table", runContext.render(this.destinationTable));
+        }
+
+        runContext.metric(Counter.of("estimated.bytes.processed", bytes, tags));
+        logger.debug("Dry run estimates {} bytes processed", bytes);
+
+        if (this.preflightMaxBytes == null || bytes <= this.preflightMaxBytes) {
+            return jobConfiguration;
+        }
+
+        if (this.preflightAction == PreflightAction.BATCH) {
+            logger.warn("Query will process {} bytes, more than {}, switching to batch priority", bytes, this.preflightMaxBytes);
+
+            return jobConfiguration.toBuilder()
+                .setPriority(QueryJobConfiguration.Priority.BATCH)
+                .build();
+        }
+
+        throw new IllegalArgumentException("Query will process " + bytes + " bytes, more than the " +
+            this.preflightMaxBytes + " bytes allowed by 'preflightMaxBytes'");
+    }
+
+    @Builder(toBuilder = true)
     @Getter
     public static class Output implements org.kestra.core.models.tasks.Output {
         @OutputProperty(
@@ -233,18 +638,42 @@ public class Query extends AbstractBigquery implements RunnableTask<Query.Output
             body = "Only populated if 'fetchOne' parameter is set to true."
         )
         private Map<String, Object> row;
+
+        @OutputProperty(
+            description = "The uri of the stored result",
+            body = "Only populated if 'store' parameter is set to true."
+        )
+        private URI uri;
+
+        @OutputProperty(
+            description = "The number of stored rows",
+            body = "Only populated if 'store' parameter is set to true."
+        )
+        private Long size;
+
+        @OutputProperty(
+            description = "The uri of the stored query plan and timeline",
+            body = "Only populated if 'storeProfile' parameter is set to true."
+        )
+        private URI profileUri;
+
+        @OutputProperty(
+            description = "The watermark processed up to",
+            body = "Only populated if 'watermark' parameter is set."
+        )
+        private String watermark;
     }
 
     private void metrics(RunContext runContext, JobStatistics.QueryStatistics stats, Job queryJob) throws IllegalVariableEvaluationException {
         String[] tags = {
             "statement_type", stats.getStatementType().name(),
-            "fetch", this.fetch || this.fetchOne ? "true" : "false",
+            "fetch", this.fetch || this.fetchOne || this.store ? "true" : "false",
             "projectId", queryJob.getJobId().getProject(),
             "location", queryJob.getJobId().getLocation(),
         };
 
         if (this.destinationTable != null) {
-            ArrayUtils.addAll(tags, "destination_table", runContext.render(this.destinationTable));
+            tags = ArrayUtils.addAll(tags, "destination_table", runContext.render(this.destinationTable));
         }
 
         if (stats.getEstimatedBytesProcessed() != null) {
@@ -280,109 +709,147 @@ public class Query extends AbstractBigquery implements RunnableTask<Query.Output
         }
 
         runContext.metric(Timer.of("duration", Duration.ofNanos(stats.getEndTime() - stats.getStartTime()), tags));
-    }
 
-    private List<Map<String, Object>> fetchResult(TableResult result) {
-        return StreamSupport
-            .stream(result.getValues().spliterator(), false)
-            .map(fieldValues -> this.convertRows(result, fieldValues))
-            .collect(Collectors.toList());
+        if (this.planMetrics) {
+            QueryProfile.metrics(runContext, stats, tags);
+        }
     }
 
-    private Map<String, Object> convertRows(TableResult result, FieldValueList fieldValues) {
-        HashMap<String, Object> row = new HashMap<>();
-        result
-            .getSchema()
-            .getFields()
-            .forEach(field -> {
-                row.put(field.getName(), convertCell(field, fieldValues.get(field.getName()), false));
+    private void storeResult(RunContext runContext, Job queryJob, Output.OutputBuilder output) throws IOException, InterruptedException, IllegalVariableEvaluationException {
+        File tempFile = File.createTempFile(this.getClass().getSimpleName().toLowerCase() + "_", ".json");
+        ObjectWriter writer = JacksonMapper.ofJson().writer();
+        long size;
+
+        try (BufferedWriter fileWriter = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+            size = this.readResult(runContext, queryJob, row -> {
+                try {
+                    fileWriter.write(writer.writeValueAsString(row));
+                    fileWriter.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
             });
+        }
+
+        runContext.metric(Counter.of("store.rows", size));
 
-        return row;
+        output
+            .uri(runContext.putTempFile(tempFile))
+            .size(size);
+
+        tempFile.delete();
     }
 
-    private Object convertCell(Field field, FieldValue value, boolean isRepeated) {
-        if (field.getMode() == Field.Mode.REPEATED && !isRepeated) {
-            return value
-                .getRepeatedValue()
-                .stream()
-                .map(fieldValue -> this.convertCell(field, fieldValue, true))
-                .collect(Collectors.toList());
-        }
+    private long readResult(RunContext runContext, Job queryJob, Consumer<Map<String, Object>> consumer) throws IOException, InterruptedException, IllegalVariableEvaluationException {
+        TableId destinationTable = ((QueryJobConfiguration) queryJob.getConfiguration()).getDestinationTable();
 
-        if (value.isNull()) {
-            return null;
-        }
+        if (this.storageApi && destinationTable != null && this.maxRows == null) {
+            JobStatistics.QueryStatistics stats = queryJob.getStatistics();
 
-        if (LegacySQLTypeName.BOOLEAN.equals(field.getType())) {
-            return value.getBooleanValue();
+            return new StorageReader(this.readClient(runContext), this.storageApiStreams)
+                .read(queryJob.getJobId().getProject(), destinationTable, stats.getSchema(), consumer);
         }
 
-        if (LegacySQLTypeName.BYTES.equals(field.getType())) {
-            return value.getBytesValue();
-        }
+        long limit = this.maxRows != null ? this.maxRows : Long.MAX_VALUE;
+        Long pageSize = this.pageSize;
 
-        if (LegacySQLTypeName.DATE.equals(field.getType())) {
-            return LocalDate.parse(value.getStringValue());
+        if (this.maxRows != null && (pageSize == null || pageSize > this.maxRows)) {
+            pageSize = this.maxRows;
         }
 
-        if (LegacySQLTypeName.DATETIME.equals(field.getType())) {
-            return Instant.parse(value.getStringValue() + "Z");
+        TableResult result = pageSize != null ?
+            queryJob.getQueryResults(BigQuery.QueryResultsOption.pageSize(pageSize)) :
+            queryJob.getQueryResults();
+        FieldValueConverter converter = new FieldValueConverter(result.getSchema().getFields());
+
+        if (this.prefetchPages > 0) {
+            return new PageFetcher(this.prefetchPages, this.fetchThreads).fetch(result, converter, limit, consumer);
         }
 
-        if (LegacySQLTypeName.FLOAT.equals(field.getType())) {
-            return value.getDoubleValue();
+        long count = 0;
+        Iterator<FieldValueList> values = result.iterateAll().iterator();
+
+        // check the limit before hasNext, that fetches the next page once the current one is consumed
+        while (count < limit && values.hasNext()) {
+            consumer.accept(converter.convert(values.next()));
+            count++;
         }
 
-        if (LegacySQLTypeName.GEOGRAPHY.equals(field.getType())) {
-            Pattern p = Pattern.compile("^POINT\\(([0-9.]+) ([0-9.]+)\\)$");
-            Matcher m = p.matcher(value.getStringValue());
+        return count;
+    }
 
-            if (m.find()) {
-                return Arrays.asList(
-                    Double.parseDouble(m.group(1)),
-                    Double.parseDouble(m.group(2))
-                );
-            }
+    private Map<String, Object> fetchOne(Job queryJob) throws InterruptedException {
+        TableResult result = queryJob.getQueryResults(BigQuery.QueryResultsOption.pageSize(1));
+        Iterator<FieldValueList> values = result.getValues().iterator();
 
-            throw new IllegalFormatFlagsException("Couldn't match '" + value.getStringValue() + "'");
+        if (!values.hasNext()) {
+            return null;
         }
 
-        if (LegacySQLTypeName.INTEGER.equals(field.getType())) {
-            return value.getLongValue();
-        }
+        return new FieldValueConverter(result.getSchema().getFields()).convert(values.next());
+    }
 
-        if (LegacySQLTypeName.NUMERIC.equals(field.getType())) {
-            return value.getDoubleValue();
-        }
+    @Builder
+    @ToString
+    @EqualsAndHashCode
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class QueryParameter {
+        @InputProperty(
+            description = "The parameter type",
+            body = "For an array parameter, the type of its elements."
+        )
+        private StandardSQLTypeName type;
 
-        if (LegacySQLTypeName.RECORD.equals(field.getType())) {
-            AtomicInteger counter = new AtomicInteger(0);
+        @InputProperty(
+            description = "The parameter value",
+            body = "Use the BigQuery string representation of the value, like '2020-01-31' for a DATE.",
+            dynamic = true
+        )
+        private String value;
 
-            return field
-                .getSubFields()
-                .stream()
-                .map(sub -> new AbstractMap.SimpleEntry<>(
-                    sub.getName(),
-                    this.convertCell(sub, value.getRepeatedValue().get(counter.get()), false)
-                ))
-                .peek(u -> counter.getAndIncrement())
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-        }
+        @InputProperty(
+            description = "The parameter values, for an array parameter",
+            dynamic = true
+        )
+        private List<String> values;
 
-        if (LegacySQLTypeName.STRING.equals(field.getType())) {
-            return value.getStringValue();
-        }
+        private QueryParameterValue to(RunContext runContext) throws IllegalVariableEvaluationException {
+            if (this.values != null) {
+                return array(runContext.render(this.values), this.type);
+            }
 
-        if (LegacySQLTypeName.TIME.equals(field.getType())) {
-            return LocalTime.parse(value.getStringValue());
+            return value(this.value == null ? null : runContext.render(this.value), this.type);
         }
 
-        if (LegacySQLTypeName.TIMESTAMP.equals(field.getType())) {
-            return Instant.ofEpochMilli(value.getTimestampValue() / 1000);
+        /**
+         * A parameter from its BigQuery string representation. {@link QueryParameterValue#of(Object, StandardSQLTypeName)}
+         * only accepts java types matching the parameter type, and fails on a string for any non string type.
+         */
+        static QueryParameterValue value(String value, StandardSQLTypeName type) {
+            return QueryParameterValue.newBuilder()
+                .setType(type)
+                .setValue(value)
+                .build();
         }
 
-        throw new IllegalArgumentException("Invalid type '" + field.getType() + "'");
+        static QueryParameterValue array(List<String> values, StandardSQLTypeName type) {
+            List<QueryParameterValue> elements = new ArrayList<>(values.size());
+            for (String value : values) {
+                elements.add(value(value, type));
+            }
+
+            return QueryParameterValue.newBuilder()
+                .setType(StandardSQLTypeName.ARRAY)
+                .setArrayType(type)
+                .setArrayValues(elements)
+                .build();
+        }
     }
 
+    public enum PreflightAction {
+        FAIL,
+        BATCH
+    }
 }
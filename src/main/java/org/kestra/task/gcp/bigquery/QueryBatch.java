@@ -0,0 +1,276 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.cloud.bigquery.*;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import org.kestra.core.exceptions.IllegalVariableEvaluationException;
+import org.kestra.core.models.annotations.Documentation;
+import org.kestra.core.models.annotations.Example;
+import org.kestra.core.models.annotations.InputProperty;
+import org.kestra.core.models.annotations.OutputProperty;
+import org.kestra.core.models.executions.metrics.Counter;
+import org.kestra.core.models.executions.metrics.Timer;
+import org.kestra.core.models.tasks.RunnableTask;
+import org.kestra.core.runners.RunContext;
+import org.slf4j.Logger;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+@SuperBuilder
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@Example(
+    title = "Run several aggregation queries concurrently",
+    code = {
+        "concurrency: 5",
+        "queries:",
+        "  - sql: SELECT country, COUNT(*) AS count FROM `my_project.my_dataset.users` GROUP BY country",
+        "    destinationTable: \"my_project.my_dataset.users_by_country\"",
+        "    writeDisposition: WRITE_TRUNCATE",
+        "  - sql: SELECT day, SUM(amount) AS amount FROM `my_project.my_dataset.orders` GROUP BY day",
+        "    destinationTable: \"my_project.my_dataset.orders_by_day\"",
+        "    writeDisposition: WRITE_TRUNCATE"
+    }
+)
+@Documentation(
+    description = "Execute several independent BigQuery SQL queries concurrently",
+    body = "All the jobs are submitted with the same client, with at most 'concurrency' jobs running at the same\n" +
+        " time, and are polled together. The task fails if any query fails, once all the queries are done."
+)
+public class QueryBatch extends AbstractBigquery implements RunnableTask<QueryBatch.Output> {
+    @NotNull
+    @InputProperty(
+        description = "The queries to run"
+    )
+    private List<BatchQuery> queries;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The maximum number of queries running at the same time"
+    )
+    private int concurrency = 10;
+
+    @InputProperty(
+        description = "How to wait for the BigQuery jobs",
+        body = "The delays between job status checks and the maximum duration to wait for each job."
+    )
+    private JobPolling polling;
+
+    @Override
+    public Output run(RunContext runContext) throws Exception {
+        BigQuery connection = this.connection(runContext);
+        Logger logger = runContext.logger(this.getClass());
+        JobPolling polling = this.polling != null ? this.polling : new JobPolling();
+        JobId batchJobId = Connection.jobId(runContext);
+
+        List<Job> jobs = new ArrayList<>();
+        List<CompletableFuture<Job>> futures = new ArrayList<>();
+        Exception createError = null;
+
+        try {
+            for (int i = 0; i < this.queries.size(); i++) {
+                while (futures.stream().filter(future -> !future.isDone()).count() >= this.concurrency) {
+                    CompletableFuture
+                        .anyOf(futures.stream().filter(future -> !future.isDone()).toArray(CompletableFuture[]::new))
+                        .handle((job, throwable) -> null)
+                        .get();
+                }
+
+                QueryJobConfiguration jobConfiguration = this.queries.get(i).jobConfiguration(runContext);
+                logger.debug("Starting query {}\n{}", i, jobConfiguration.getQuery());
+
+                Job job;
+
+                // a query rejected on creation doesn't stop the others, the task fails once they are all done
+                try {
+                    job = Connection.createOrAttach(
+                        connection,
+                        JobInfo.newBuilder(jobConfiguration)
+                            .setJobId(batchJobId.toBuilder().setJob(batchJobId.getJob() + "_" + i).build())
+                            .build(),
+                        logger
+                    );
+
+                    Connection.handleErrors(job, logger);
+                } catch (BigQueryException | IOException e) {
+                    logger.error("Query {} failed on creation", i, e);
+
+                    if (createError == null) {
+                        createError = e;
+                    }
+
+                    jobs.add(null);
+                    futures.add(CompletableFuture.completedFuture(null));
+                    continue;
+                }
+
+                jobs.add(job);
+                futures.add(polling.poll(job));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                if (jobs.get(i) != null) {
+                    jobs.set(i, polling.get(futures.get(i)));
+                }
+            }
+        } catch (Exception e) {
+            for (int i = 0; i < futures.size(); i++) {
+                if (!futures.get(i).isDone() && jobs.get(i) != null) {
+                    futures.get(i).cancel(true);
+                    this.cancel(runContext, jobs.get(i), logger);
+                }
+            }
+
+            throw e;
+        }
+
+        for (int i = 0; i < jobs.size(); i++) {
+            if (jobs.get(i) != null) {
+                this.metrics(runContext, jobs.get(i), i);
+            }
+        }
+
+        if (createError != null) {
+            throw createError;
+        }
+
+        for (Job job : jobs) {
+            Connection.handleErrors(job, logger);
+        }
+
+        return Output.builder()
+            .jobs(jobs
+                .stream()
+                .map(job -> {
+                    QueryJobConfiguration configuration = job.getConfiguration();
+                    TableId table = configuration.getDestinationTable();
+
+                    return JobOutput.builder()
+                        .jobId(job.getJobId().getJob())
+                        .destinationTable(table == null ? null : table.getProject() + "." + table.getDataset() + "." + table.getTable())
+                        .build();
+                })
+                .collect(Collectors.toList())
+            )
+            .build();
+    }
+
+    private void metrics(RunContext runContext, Job job, int index) {
+        JobStatistics.QueryStatistics stats = job.getStatistics();
+
+        String[] tags = {
+            "query", String.valueOf(index),
+            "projectId", job.getJobId().getProject(),
+            "location", job.getJobId().getLocation(),
+        };
+
+        if (stats.getTotalBytesBilled() != null) {
+            runContext.metric(Counter.of("total.bytes.billed", stats.getTotalBytesBilled(), tags));
+        }
+
+        if (stats.getTotalBytesProcessed() != null) {
+            runContext.metric(Counter.of("total.bytes.processed", stats.getTotalBytesProcessed(), tags));
+        }
+
+        if (stats.getTotalSlotMs() != null) {
+            runContext.metric(Counter.of("total.slot.ms", stats.getTotalSlotMs(), tags));
+        }
+
+        if (stats.getCacheHit() != null) {
+            runContext.metric(Counter.of("cache.hit", stats.getCacheHit() ? 1 : 0, tags));
+        }
+
+        if (stats.getStartTime() != null && stats.getEndTime() != null) {
+            runContext.metric(Timer.of("duration", Duration.ofMillis(stats.getEndTime() - stats.getStartTime()), tags));
+        }
+    }
+
+    @Builder
+    @ToString
+    @EqualsAndHashCode
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BatchQuery {
+        @NotNull
+        @InputProperty(
+            description = "The sql query to run",
+            dynamic = true
+        )
+        private String sql;
+
+        @Builder.Default
+        @InputProperty(
+            description = "Whether to use BigQuery's legacy SQL dialect for this query",
+            body = "By default this property is set to false."
+        )
+        private boolean legacySql = false;
+
+        @InputProperty(
+            description = "The table where to put query results",
+            body = "If not provided a new table is created.",
+            dynamic = true
+        )
+        private String destinationTable;
+
+        @InputProperty(
+            description = "The action that should occur if the destination table already exists"
+        )
+        private JobInfo.WriteDisposition writeDisposition;
+
+        @InputProperty(
+            description = "Whether the job is allowed to create tables"
+        )
+        private JobInfo.CreateDisposition createDisposition;
+
+        private QueryJobConfiguration jobConfiguration(RunContext runContext) throws IllegalVariableEvaluationException {
+            QueryJobConfiguration.Builder builder = QueryJobConfiguration.newBuilder(runContext.render(this.sql))
+                .setUseLegacySql(this.legacySql);
+
+            if (this.destinationTable != null) {
+                builder.setDestinationTable(Connection.tableId(runContext.render(this.destinationTable)));
+            }
+
+            if (this.writeDisposition != null) {
+                builder.setWriteDisposition(this.writeDisposition);
+            }
+
+            if (this.createDisposition != null) {
+                builder.setCreateDisposition(this.createDisposition);
+            }
+
+            return builder.build();
+        }
+    }
+
+    @Builder
+    @Getter
+    public static class Output implements org.kestra.core.models.tasks.Output {
+        @OutputProperty(
+            description = "The jobs of each query, in the queries order"
+        )
+        private List<JobOutput> jobs;
+    }
+
+    @Builder
+    @Getter
+    public static class JobOutput {
+        @OutputProperty(
+            description = "The job id"
+        )
+        private String jobId;
+
+        @OutputProperty(
+            description = "The table where the query results are"
+        )
+        private String destinationTable;
+    }
+}
@@ -0,0 +1,152 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobStatistics;
+import com.google.cloud.bigquery.QueryStage;
+import com.google.cloud.bigquery.TimelineSample;
+import org.apache.commons.lang3.ArrayUtils;
+import org.kestra.core.models.executions.metrics.Counter;
+import org.kestra.core.models.executions.metrics.Timer;
+import org.kestra.core.runners.RunContext;
+import org.kestra.core.serializers.JacksonMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Expose the query plan of a done query job: per stage timings, ratios and volumes as metrics tagged with
+ * the stage name, and the whole plan with its timeline as a json file.
+ */
+public class QueryProfile {
+    public static void metrics(RunContext runContext, JobStatistics.QueryStatistics stats, String[] tags) {
+        if (stats.getQueryPlan() == null) {
+            return;
+        }
+
+        for (QueryStage stage : stats.getQueryPlan()) {
+            String[] stageTags = ArrayUtils.addAll(tags, "stage", stage.getName());
+
+            runContext.metric(Timer.of("stage.duration", Duration.ofMillis(stage.getEndMs() - stage.getStartMs()), stageTags));
+            runContext.metric(Timer.of("stage.wait", Duration.ofMillis(stage.getWaitMsAvg()), stageTags));
+            runContext.metric(Timer.of("stage.read", Duration.ofMillis(stage.getReadMsAvg()), stageTags));
+            runContext.metric(Timer.of("stage.compute", Duration.ofMillis(stage.getComputeMsAvg()), stageTags));
+            runContext.metric(Timer.of("stage.write", Duration.ofMillis(stage.getWriteMsAvg()), stageTags));
+
+            runContext.metric(Counter.of("stage.wait.ratio", stage.getWaitRatioAvg(), stageTags));
+            runContext.metric(Counter.of("stage.read.ratio", stage.getReadRatioAvg(), stageTags));
+            runContext.metric(Counter.of("stage.compute.ratio", stage.getComputeRatioAvg(), stageTags));
+            runContext.metric(Counter.of("stage.write.ratio", stage.getWriteRatioAvg(), stageTags));
+
+            runContext.metric(Counter.of("stage.records.read", stage.getRecordsRead(), stageTags));
+            runContext.metric(Counter.of("stage.records.written", stage.getRecordsWritten(), stageTags));
+            runContext.metric(Counter.of("stage.shuffle.output.bytes", stage.getShuffleOutputBytes(), stageTags));
+            runContext.metric(Counter.of("stage.shuffle.output.bytes.spilled", stage.getShuffleOutputBytesSpilled(), stageTags));
+            runContext.metric(Counter.of("stage.slot.ms", stage.getSlotMs(), stageTags));
+        }
+    }
+
+    public static URI store(RunContext runContext, Job queryJob) throws IOException {
+        JobStatistics.QueryStatistics stats = queryJob.getStatistics();
+
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("jobId", queryJob.getJobId().getJob());
+        profile.put("startTime", stats.getStartTime());
+        profile.put("endTime", stats.getEndTime());
+        profile.put("totalBytesProcessed", stats.getTotalBytesProcessed());
+        profile.put("totalSlotMs", stats.getTotalSlotMs());
+        profile.put("stages", stages(stats.getQueryPlan()));
+        profile.put("timeline", timeline(stats.getTimeline()));
+
+        File tempFile = File.createTempFile("query_profile_", ".json");
+
+        try {
+            JacksonMapper.ofJson().writeValue(tempFile, profile);
+
+            return runContext.putTempFile(tempFile);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    private static List<Map<String, Object>> stages(List<QueryStage> queryPlan) {
+        List<Map<String, Object>> stages = new ArrayList<>();
+
+        if (queryPlan == null) {
+            return stages;
+        }
+
+        for (QueryStage stage : queryPlan) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", stage.getGeneratedId());
+            map.put("name", stage.getName());
+            map.put("status", stage.getStatus());
+            map.put("inputStages", stage.getInputStages());
+            map.put("startMs", stage.getStartMs());
+            map.put("endMs", stage.getEndMs());
+            map.put("parallelInputs", stage.getParallelInputs());
+            map.put("completedParallelInputs", stage.getCompletedParallelInputs());
+            map.put("slotMs", stage.getSlotMs());
+            map.put("waitMsAvg", stage.getWaitMsAvg());
+            map.put("waitMsMax", stage.getWaitMsMax());
+            map.put("waitRatioAvg", stage.getWaitRatioAvg());
+            map.put("waitRatioMax", stage.getWaitRatioMax());
+            map.put("readMsAvg", stage.getReadMsAvg());
+            map.put("readMsMax", stage.getReadMsMax());
+            map.put("readRatioAvg", stage.getReadRatioAvg());
+            map.put("readRatioMax", stage.getReadRatioMax());
+            map.put("computeMsAvg", stage.getComputeMsAvg());
+            map.put("computeMsMax", stage.getComputeMsMax());
+            map.put("computeRatioAvg", stage.getComputeRatioAvg());
+            map.put("computeRatioMax", stage.getComputeRatioMax());
+            map.put("writeMsAvg", stage.getWriteMsAvg());
+            map.put("writeMsMax", stage.getWriteMsMax());
+            map.put("writeRatioAvg", stage.getWriteRatioAvg());
+            map.put("writeRatioMax", stage.getWriteRatioMax());
+            map.put("recordsRead", stage.getRecordsRead());
+            map.put("recordsWritten", stage.getRecordsWritten());
+            map.put("shuffleOutputBytes", stage.getShuffleOutputBytes());
+            map.put("shuffleOutputBytesSpilled", stage.getShuffleOutputBytesSpilled());
+
+            List<Map<String, Object>> steps = new ArrayList<>();
+            if (stage.getSteps() != null) {
+                for (QueryStage.QueryStep step : stage.getSteps()) {
+                    Map<String, Object> stepMap = new LinkedHashMap<>();
+                    stepMap.put("name", step.getName());
+                    stepMap.put("substeps", step.getSubsteps());
+                    steps.add(stepMap);
+                }
+            }
+            map.put("steps", steps);
+
+            stages.add(map);
+        }
+
+        return stages;
+    }
+
+    private static List<Map<String, Object>> timeline(List<TimelineSample> timeline) {
+        List<Map<String, Object>> samples = new ArrayList<>();
+
+        if (timeline == null) {
+            return samples;
+        }
+
+        for (TimelineSample sample : timeline) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("elapsedMs", sample.getElapsedMs());
+            map.put("activeUnits", sample.getActiveUnits());
+            map.put("completedUnits", sample.getCompletedUnits());
+            map.put("pendingUnits", sample.getPendingUnits());
+            map.put("slotMillis", sample.getSlotMillis());
+            samples.add(map);
+        }
+
+        return samples;
+    }
+}
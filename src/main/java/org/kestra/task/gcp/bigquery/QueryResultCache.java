@@ -0,0 +1,155 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.auth.Credentials;
+import com.google.auth.oauth2.ServiceAccountCredentials;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A worker-local cache of fetched query results, stored on local disk and bounded by its total size.
+ * Entries are evicted in least recently used order and never kept more than a day, each query decides
+ * with its own ttl whether an entry is still fresh. Entries are keyed by the credentials used, so results are
+ * never shared between two principals. Files are only read back as the lists, maps and values a
+ * {@link FieldValueConverter} produces, any other class is rejected.
+ */
+public class QueryResultCache {
+    private static final long MAX_BYTES = 1024L * 1024 * 1024;
+    private static final long MAX_AGE_HOURS = 24;
+
+    private static final Cache<String, Entry> ENTRIES = CacheBuilder
+        .newBuilder()
+        .maximumWeight(MAX_BYTES)
+        .weigher((String key, Entry entry) -> (int) Math.min(entry.file.length(), Integer.MAX_VALUE))
+        .expireAfterWrite(MAX_AGE_HOURS, TimeUnit.HOURS)
+        .removalListener(notification -> notification.getValue().file.delete())
+        .build();
+
+    // arrays are matched by their element type: Object and Map$Entry arrays back the lists and maps
+    private static final ObjectInputFilter ROWS_FILTER = ObjectInputFilter.Config.createFilter(String.join(";",
+        "maxdepth=32",
+        "java.util.ArrayList",
+        "java.util.Arrays$ArrayList",
+        "java.util.HashMap",
+        "java.util.Map$Entry",
+        "java.lang.Object",
+        "java.lang.Boolean",
+        "java.lang.Number",
+        "java.lang.Long",
+        "java.lang.Double",
+        "java.lang.String",
+        "java.time.Ser",
+        "java.time.Instant",
+        "java.time.LocalDate",
+        "java.time.LocalTime",
+        "!*"
+    ));
+
+    private static final Map<Credentials, String> PRINCIPALS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static Path directory;
+
+    public static String key(String projectId, String location, Credentials credentials, boolean legacySql, String sql, String parameters, String mode) {
+        Hasher hasher = Hashing.sha256().newHasher();
+
+        for (String part : Arrays.asList(projectId, location, principal(credentials), String.valueOf(legacySql), mode, sql, parameters)) {
+            hasher.putString(String.valueOf(part), StandardCharsets.UTF_8);
+            hasher.putByte((byte) 0);
+        }
+
+        return hasher.hash().toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Optional<List<Map<String, Object>>> get(String key, Duration ttl) {
+        Entry entry = ENTRIES.getIfPresent(key);
+
+        if (entry == null) {
+            return Optional.empty();
+        }
+
+        if (entry.created.plus(ttl).isBefore(Instant.now())) {
+            return Optional.empty();
+        }
+
+        try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(entry.file)))) {
+            input.setObjectInputFilter(ROWS_FILTER);
+
+            return Optional.of((List<Map<String, Object>>) input.readObject());
+        } catch (IOException | ClassNotFoundException e) {
+            ENTRIES.invalidate(key);
+
+            return Optional.empty();
+        }
+    }
+
+    public static void put(String key, List<Map<String, Object>> rows) throws IOException {
+        ArrayList<Map<String, Object>> serializable = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            serializable.add(row == null ? null : new HashMap<>(row));
+        }
+
+        Path directory = directory();
+        File temp = File.createTempFile(key, ".tmp", directory.toFile());
+
+        try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            output.writeObject(serializable);
+        }
+
+        File file = Files.move(temp.toPath(), directory.resolve(key + "_" + System.nanoTime()), StandardCopyOption.ATOMIC_MOVE).toFile();
+
+        ENTRIES.put(key, new Entry(file, Instant.now()));
+    }
+
+    private static synchronized Path directory() throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory("bigquery-result-cache_");
+
+            // a single hook for the whole cache, the removal listener deletes the files
+            File cacheDirectory = directory.toFile();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                ENTRIES.invalidateAll();
+                cacheDirectory.delete();
+            }));
+        }
+
+        return directory;
+    }
+
+    /**
+     * Service accounts are identified by their email, other credentials by their instance: connections are
+     * cached per credentials, so the same principal keeps the same instance while its entries are used.
+     */
+    private static String principal(Credentials credentials) {
+        if (credentials == null) {
+            return "none";
+        }
+
+        if (credentials instanceof ServiceAccountCredentials) {
+            return ((ServiceAccountCredentials) credentials).getClientEmail();
+        }
+
+        return PRINCIPALS.computeIfAbsent(credentials, c -> UUID.randomUUID().toString());
+    }
+
+    private static class Entry {
+        private final File file;
+        private final Instant created;
+
+        private Entry(File file, Instant created) {
+            this.file = file;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.cloud.BaseService;
+import com.google.cloud.BaseWriteChannel;
+import com.google.cloud.RestorableState;
+import com.google.cloud.RetryHelper;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.bigquery.BigQueryException;
+import com.google.cloud.bigquery.BigQueryOptions;
+import com.google.cloud.bigquery.WriteChannelConfiguration;
+import com.google.cloud.bigquery.spi.v2.BigQueryRpc;
+
+import java.lang.reflect.Method;
+
+/**
+ * Continue a resumable load upload from a checkpointed session uri and position, with the options (and so the
+ * credentials) of the task's own BigQuery client. The position must be a flushed one: the chunks sent before it
+ * are not buffered again.
+ */
+public class ResumedUpload extends BaseWriteChannel<BigQueryOptions, WriteChannelConfiguration> {
+    public ResumedUpload(BigQueryOptions options, WriteChannelConfiguration configuration, String uploadId, long position, int chunkSize) {
+        super(options, configuration, uploadId);
+
+        State.Builder builder = new State.Builder(options, configuration, uploadId);
+        builder
+            .setPosition(position)
+            .setIsOpen(true)
+            .setChunkSize(chunkSize);
+
+        this.restore(new State(builder));
+    }
+
+    /**
+     * The session uri of an upload, the only part of its state a checkpoint needs. The options, and their
+     * credentials, are never saved.
+     */
+    public static String uploadId(WriteChannel channel) {
+        try {
+            Method method = BaseWriteChannel.class.getDeclaredMethod("getUploadId");
+            method.setAccessible(true);
+
+            return (String) method.invoke(channel);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to read the upload session of " + channel.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    protected void flushBuffer(int length, boolean last) {
+        BigQueryRpc rpc = (BigQueryRpc) this.getOptions().getRpc();
+
+        try {
+            RetryHelper.runWithRetries(
+                () -> rpc.write(this.getUploadId(), this.getBuffer(), 0, this.getPosition(), length, last),
+                this.getOptions().getRetrySettings(),
+                BaseService.EXCEPTION_HANDLER,
+                this.getOptions().getClock()
+            );
+        } catch (RetryHelper.RetryHelperException e) {
+            if (e.getCause() instanceof BigQueryException) {
+                throw (BigQueryException) e.getCause();
+            }
+
+            throw new BigQueryException(BigQueryException.UNKNOWN_CODE, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected State.Builder stateBuilder() {
+        return new State.Builder(this.getOptions(), this.getEntity(), this.getUploadId());
+    }
+
+    private static class State extends BaseState<BigQueryOptions, WriteChannelConfiguration> {
+        private static final long serialVersionUID = 1L;
+
+        private State(Builder builder) {
+            super(builder);
+        }
+
+        @Override
+        public WriteChannel restore() {
+            ResumedUpload channel = new ResumedUpload(this.serviceOptions, this.entity, this.uploadId, this.position, this.chunkSize);
+            channel.restore(this);
+
+            return channel;
+        }
+
+        private static class Builder extends BaseState.Builder<BigQueryOptions, WriteChannelConfiguration> {
+            private Builder(BigQueryOptions options, WriteChannelConfiguration configuration, String uploadId) {
+                super(options, configuration, uploadId);
+            }
+
+            @Override
+            public RestorableState<WriteChannel> build() {
+                return new State(this);
+            }
+        }
+    }
+}
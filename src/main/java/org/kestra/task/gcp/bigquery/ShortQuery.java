@@ -0,0 +1,244 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.util.Data;
+import com.google.api.services.bigquery.Bigquery;
+import com.google.api.services.bigquery.model.*;
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.BigQueryException;
+import com.google.cloud.bigquery.BigQueryOptions;
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.FieldList;
+import com.google.cloud.bigquery.FieldValue;
+import com.google.cloud.bigquery.FieldValueList;
+import com.google.cloud.bigquery.JobId;
+import com.google.cloud.bigquery.LegacySQLTypeName;
+import com.google.cloud.bigquery.QueryJobConfiguration;
+import com.google.cloud.http.HttpTransportOptions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Run a query with the synchronous jobs.query endpoint: BigQuery waits up to {@code timeout} for the query
+ * and returns the first result page with the response, saving the job creation, polling and results calls.
+ * When the query isn't done in time, or the result doesn't fit in the first page, the caller continues with
+ * the job created by BigQuery.
+ */
+public class ShortQuery {
+    private static final Cache<BigQuery, Bigquery> CLIENTS = CacheBuilder
+        .newBuilder()
+        .weakKeys()
+        .build();
+
+    private final Duration timeout;
+    private final Long maxResults;
+
+    public ShortQuery(Duration timeout, Long maxResults) {
+        this.timeout = timeout;
+        this.maxResults = maxResults;
+    }
+
+    public Result run(BigQuery connection, QueryJobConfiguration jobConfiguration, JobId jobId, long limit) throws IOException {
+        QueryRequest request = new QueryRequest()
+            .setQuery(jobConfiguration.getQuery())
+            .setUseLegacySql(jobConfiguration.useLegacySql())
+            .setLocation(connection.getOptions().getLocation())
+            .setTimeoutMs(this.timeout.toMillis())
+            .setMaxResults(this.maxResults)
+            .setMaximumBytesBilled(jobConfiguration.getMaximumBytesBilled())
+            // at most 36 characters, a uuid derived from the job id so a retried attempt reuses the same request
+            .setRequestId(UUID.nameUUIDFromBytes(jobId.getJob().getBytes(StandardCharsets.UTF_8)).toString());
+
+        parameters(request, jobConfiguration);
+
+        QueryResponse response;
+        try {
+            response = client(connection)
+                .jobs()
+                .query(connection.getOptions().getProjectId(), request)
+                .execute();
+        } catch (IOException e) {
+            throw new BigQueryException(e);
+        }
+
+        JobReference reference = response.getJobReference();
+        Result.ResultBuilder result = Result.builder()
+            .jobId(JobId.newBuilder()
+                .setProject(reference.getProjectId())
+                .setJob(reference.getJobId())
+                .setLocation(reference.getLocation())
+                .build()
+            )
+            .totalBytesProcessed(response.getTotalBytesProcessed())
+            .numDmlAffectedRows(response.getNumDmlAffectedRows())
+            .cacheHit(response.getCacheHit());
+
+        List<TableRow> rows = response.getRows() != null ? response.getRows() : Collections.emptyList();
+        boolean complete = Boolean.TRUE.equals(response.getJobComplete()) &&
+            response.getErrors() == null &&
+            (response.getPageToken() == null || rows.size() >= limit);
+
+        if (!complete) {
+            return result.complete(false).build();
+        }
+
+        if (response.getSchema() != null) {
+            FieldList fields = fields(response.getSchema().getFields());
+            FieldValueConverter converter = new FieldValueConverter(fields);
+            List<Map<String, Object>> converted = new ColumnarRows(fields);
+
+            for (TableRow row : rows) {
+                if (converted.size() >= limit) {
+                    break;
+                }
+
+                converted.add(converter.convert(FieldValueList.of(values(row.getF(), fields), fields)));
+            }
+
+            result.rows(converted);
+        }
+
+        return result.complete(true).build();
+    }
+
+    private static Bigquery client(BigQuery connection) throws IOException {
+        try {
+            return CLIENTS.get(connection, () -> {
+                BigQueryOptions options = connection.getOptions();
+                HttpTransportOptions transportOptions = (HttpTransportOptions) options.getTransportOptions();
+
+                return new Bigquery.Builder(
+                    transportOptions.getHttpTransportFactory().create(),
+                    JacksonFactory.getDefaultInstance(),
+                    transportOptions.getHttpRequestInitializer(options)
+                )
+                    .setRootUrl(options.getHost())
+                    .setApplicationName(options.getApplicationName())
+                    .build();
+            });
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static void parameters(QueryRequest request, QueryJobConfiguration jobConfiguration) {
+        List<QueryParameter> parameters = new ArrayList<>();
+
+        if (jobConfiguration.getNamedParameters() != null && !jobConfiguration.getNamedParameters().isEmpty()) {
+            request.setParameterMode("NAMED");
+
+            jobConfiguration.getNamedParameters().forEach((name, value) -> parameters.add(parameter(value).setName(name)));
+        } else if (jobConfiguration.getPositionalParameters() != null && !jobConfiguration.getPositionalParameters().isEmpty()) {
+            request.setParameterMode("POSITIONAL");
+
+            jobConfiguration.getPositionalParameters().forEach(value -> parameters.add(parameter(value)));
+        }
+
+        if (!parameters.isEmpty()) {
+            request.setQueryParameters(parameters);
+        }
+    }
+
+    private static QueryParameter parameter(com.google.cloud.bigquery.QueryParameterValue value) {
+        QueryParameterType type = new QueryParameterType().setType(value.getType().name());
+
+        if (value.getArrayType() != null) {
+            type.setArrayType(new QueryParameterType().setType(value.getArrayType().name()));
+        }
+
+        return new QueryParameter()
+            .setParameterType(type)
+            .setParameterValue(parameterValue(value));
+    }
+
+    private static QueryParameterValue parameterValue(com.google.cloud.bigquery.QueryParameterValue value) {
+        QueryParameterValue parameterValue = new QueryParameterValue();
+
+        if (value.getArrayValues() != null) {
+            List<QueryParameterValue> values = new ArrayList<>();
+            for (com.google.cloud.bigquery.QueryParameterValue item : value.getArrayValues()) {
+                values.add(parameterValue(item));
+            }
+
+            return parameterValue.setArrayValues(values);
+        }
+
+        return parameterValue.setValue(value.getValue());
+    }
+
+    private static FieldList fields(List<TableFieldSchema> schemas) {
+        List<Field> fields = new ArrayList<>();
+
+        for (TableFieldSchema schema : schemas) {
+            Field.Builder builder = schema.getFields() != null ?
+                Field.newBuilder(schema.getName(), LegacySQLTypeName.valueOf(schema.getType()), fields(schema.getFields())) :
+                Field.newBuilder(schema.getName(), LegacySQLTypeName.valueOf(schema.getType()));
+
+            if (schema.getMode() != null) {
+                builder.setMode(Field.Mode.valueOf(schema.getMode()));
+            }
+
+            fields.add(builder.build());
+        }
+
+        return FieldList.of(fields);
+    }
+
+    private static List<FieldValue> values(List<TableCell> cells, FieldList fields) {
+        List<FieldValue> values = new ArrayList<>(cells.size());
+
+        for (int i = 0; i < cells.size(); i++) {
+            values.add(value(cells.get(i).getV(), fields.get(i)));
+        }
+
+        return values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FieldValue value(Object value, Field field) {
+        if (value == null || Data.isNull(value)) {
+            return FieldValue.of(FieldValue.Attribute.PRIMITIVE, null);
+        }
+
+        if (value instanceof List) {
+            List<FieldValue> values = new ArrayList<>();
+            for (Object item : (List<Object>) value) {
+                values.add(value(((Map<String, Object>) item).get("v"), field));
+            }
+
+            return FieldValue.of(FieldValue.Attribute.REPEATED, values);
+        }
+
+        if (value instanceof Map) {
+            List<Map<String, Object>> cells = (List<Map<String, Object>>) ((Map<String, Object>) value).get("f");
+            List<FieldValue> values = new ArrayList<>(cells.size());
+
+            for (int i = 0; i < cells.size(); i++) {
+                values.add(value(cells.get(i).get("v"), field.getSubFields().get(i)));
+            }
+
+            return FieldValue.of(FieldValue.Attribute.RECORD, FieldValueList.of(values, field.getSubFields()));
+        }
+
+        return FieldValue.of(FieldValue.Attribute.PRIMITIVE, value);
+    }
+
+    @Builder
+    @Getter
+    public static class Result {
+        private final JobId jobId;
+        private final boolean complete;
+        private final List<Map<String, Object>> rows;
+        private final Long totalBytesProcessed;
+        private final Long numDmlAffectedRows;
+        private final Boolean cacheHit;
+    }
+}
@@ -0,0 +1,168 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.api.gax.rpc.ServerStream;
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.FieldList;
+import com.google.cloud.bigquery.FieldValue;
+import com.google.cloud.bigquery.Schema;
+import com.google.cloud.bigquery.TableId;
+import com.google.cloud.bigquery.storage.v1.*;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Read a table with the BigQuery Storage Read API, using several parallel streams decoded from Avro.
+ * Rows from all the streams are merged into a single consumer, without any ordering guarantee. Avro cells are
+ * adapted to {@link FieldValue} so rows are converted by the same {@link FieldValueConverter} as the other
+ * result paths.
+ */
+public class StorageReader {
+    private static final int NUMERIC_SCALE = 9;
+
+    private final BigQueryReadClient client;
+    private final int maxStreams;
+
+    public StorageReader(BigQueryReadClient client, int maxStreams) {
+        this.client = client;
+        this.maxStreams = maxStreams;
+    }
+
+    public long read(String projectId, TableId table, Schema schema, Consumer<Map<String, Object>> consumer) throws IOException, InterruptedException {
+        ReadSession session = this.client.createReadSession(CreateReadSessionRequest.newBuilder()
+            .setParent("projects/" + projectId)
+            .setReadSession(ReadSession.newBuilder()
+                .setTable("projects/" + table.getProject() + "/datasets/" + table.getDataset() + "/tables/" + table.getTable())
+                .setDataFormat(DataFormat.AVRO)
+            )
+            .setMaxStreamCount(this.maxStreams)
+            .build()
+        );
+
+        if (session.getStreamsCount() == 0) {
+            return 0;
+        }
+
+        org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(session.getAvroSchema().getSchema());
+        FieldValueConverter converter = new FieldValueConverter(schema.getFields());
+        Consumer<Map<String, Object>> synchronizedConsumer = row -> {
+            synchronized (consumer) {
+                consumer.accept(row);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(session.getStreamsCount());
+
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (ReadStream stream : session.getStreamsList()) {
+                futures.add(executor.submit(() -> this.readStream(stream, avroSchema, schema, converter, synchronizedConsumer)));
+            }
+
+            long count = 0;
+            for (Future<Long> future : futures) {
+                count += future.get();
+            }
+
+            return count;
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long readStream(ReadStream stream, org.apache.avro.Schema avroSchema, Schema schema, FieldValueConverter converter, Consumer<Map<String, Object>> consumer) throws IOException {
+        GenericDatumReader<GenericRecord> datumReader = new GenericDatumReader<>(avroSchema);
+        BinaryDecoder decoder = null;
+        GenericRecord record = null;
+        long count = 0;
+
+        ServerStream<ReadRowsResponse> responses = this.client
+            .readRowsCallable()
+            .call(ReadRowsRequest.newBuilder().setReadStream(stream.getName()).build());
+
+        for (ReadRowsResponse response : responses) {
+            decoder = DecoderFactory.get().binaryDecoder(response.getAvroRows().getSerializedBinaryRows().toByteArray(), decoder);
+
+            while (!decoder.isEnd()) {
+                record = datumReader.read(record, decoder);
+                consumer.accept(converter.convert(values(schema.getFields(), record)));
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static List<FieldValue> values(FieldList fields, GenericRecord record) {
+        List<FieldValue> values = new ArrayList<>(fields.size());
+
+        for (Field field : fields) {
+            values.add(value(field, record.get(field.getName()), false));
+        }
+
+        return values;
+    }
+
+    /**
+     * Wrap an avro cell in a {@link FieldValue}, with the same representation as the BigQuery rest api.
+     */
+    private static FieldValue value(Field field, Object value, boolean isRepeated) {
+        if (value == null) {
+            return FieldValue.of(FieldValue.Attribute.PRIMITIVE, null);
+        }
+
+        if (field.getMode() == Field.Mode.REPEATED && !isRepeated) {
+            List<FieldValue> list = new ArrayList<>();
+            for (Object item : (Collection<?>) value) {
+                list.add(value(field, item, true));
+            }
+
+            return FieldValue.of(FieldValue.Attribute.REPEATED, list);
+        }
+
+        switch (field.getType().getStandardType()) {
+            case STRUCT:
+                return FieldValue.of(FieldValue.Attribute.RECORD, values(field.getSubFields(), (GenericRecord) value));
+            case BYTES:
+                return primitive(Base64.getEncoder().encodeToString(bytes((ByteBuffer) value)));
+            case DATE:
+                return primitive(LocalDate.ofEpochDay((Integer) value).toString());
+            case NUMERIC:
+                return primitive(new BigDecimal(new BigInteger(bytes((ByteBuffer) value)), NUMERIC_SCALE).toPlainString());
+            case TIME:
+                return primitive(LocalTime.ofNanoOfDay((Long) value * 1000).toString());
+            case TIMESTAMP:
+                // microseconds since epoch, to the rest api seconds
+                return primitive(BigDecimal.valueOf((Long) value, 6).toPlainString());
+            default:
+                return primitive(value.toString());
+        }
+    }
+
+    private static FieldValue primitive(String value) {
+        return FieldValue.of(FieldValue.Attribute.PRIMITIVE, value);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+
+        return bytes;
+    }
+}
@@ -0,0 +1,216 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.Schema;
+import com.google.cloud.bigquery.Table;
+import com.google.cloud.bigquery.TableId;
+import com.google.cloud.bigquery.storage.v1alpha2.Stream.WriteStream;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import org.kestra.core.models.annotations.Documentation;
+import org.kestra.core.models.annotations.Example;
+import org.kestra.core.models.annotations.InputProperty;
+import org.kestra.core.models.annotations.OutputProperty;
+import org.kestra.core.models.executions.metrics.Counter;
+import org.kestra.core.models.executions.metrics.Timer;
+import org.kestra.core.models.tasks.RunnableTask;
+import org.kestra.core.runners.RunContext;
+import org.kestra.core.serializers.JacksonMapper;
+import org.slf4j.Logger;
+
+import javax.validation.constraints.NotNull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+
+@SuperBuilder
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@Example(
+    title = "Append the rows of a query result to a table, all at once",
+    code = {
+        "from: \"{{ outputs.query.uri }}\"",
+        "destinationTable: \"my_project.my_dataset.my_table\"",
+        "writeStreamType: PENDING",
+        "batchSize: 1000"
+    }
+)
+@Documentation(
+    description = "Write rows from a file to BigQuery with the Storage Write API",
+    body = "The file is a newline delimited json file like the ones stored by the query task, converted with the\n" +
+        " destination table schema. Rows are available in seconds, without the queueing and the per table quota\n" +
+        " of load jobs."
+)
+public class StorageWrite extends AbstractBigquery implements RunnableTask<StorageWrite.Output> {
+    @NotNull
+    @InputProperty(
+        description = "The fully-qualified URIs that point to source data",
+        body = "A newline delimited json file, with one object per row.",
+        dynamic = true
+    )
+    private String from;
+
+    @NotNull
+    @InputProperty(
+        description = "The table where to write the rows",
+        body = "The table must exist, its schema is used to convert the rows.",
+        dynamic = true
+    )
+    private String destinationTable;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The type of write stream",
+        body = "With COMMITTED, rows are visible as soon as each append is acknowledged. With PENDING, rows are\n" +
+            " only visible once all the rows are written and the stream is committed. Each append carries the\n" +
+            " offset of its first row, so an append sent twice is only written once in the stream. Without\n" +
+            " 'checkpointUri', a retried task writes on a new stream and the rows of a failed COMMITTED attempt\n" +
+            " are written again."
+    )
+    private WriteStreamType writeStreamType = WriteStreamType.COMMITTED;
+
+    @InputProperty(
+        description = "The gcs uri where the write stream is checkpointed",
+        body = "If set, like 'gs://my_bucket/checkpoints', the write stream and its acknowledged rows are saved\n" +
+            " every 'checkpointRows' rows. A retried task appends to the same stream from the last checkpoint,\n" +
+            " and the appends already written after it are rejected by their offset, so each row is written\n" +
+            " once. The input file must be the same on each attempt.",
+        dynamic = true
+    )
+    private String checkpointUri;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The number of acknowledged rows between two checkpoints",
+        body = "Only used if 'checkpointUri' is set."
+    )
+    private long checkpointRows = 100_000;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The maximum number of rows sent in each append request",
+        body = "Requests are also sent before reaching 10 MB, the api limit."
+    )
+    private int batchSize = 500;
+
+    @Builder.Default
+    @InputProperty(
+        description = "The maximum number of append requests waiting for their acknowledgement",
+        body = "More requests in flight hide the network latency, at the cost of the memory of the pending\n" +
+            " requests."
+    )
+    private int maxInFlightRequests = 4;
+
+    @Override
+    public Output run(RunContext runContext) throws Exception {
+        BigQuery connection = this.connection(runContext);
+        Logger logger = runContext.logger(this.getClass());
+
+        String destinationTable = runContext.render(this.destinationTable);
+        TableId tableId = Connection.tableId(destinationTable);
+        if (tableId.getProject() == null) {
+            tableId = TableId.of(connection.getOptions().getProjectId(), tableId.getDataset(), tableId.getTable());
+        }
+
+        Table table = connection.getTable(tableId);
+        if (table == null) {
+            throw new IllegalArgumentException("Table '" + destinationTable + "' doesn't exist");
+        }
+
+        Schema schema = table.getDefinition().getSchema();
+        StorageWriter writer = new StorageWriter(
+            this.writeClient(runContext),
+            this.writeStreamType == WriteStreamType.PENDING ? WriteStream.Type.PENDING : WriteStream.Type.COMMITTED,
+            this.batchSize,
+            this.maxInFlightRequests
+        );
+
+        WriteStreamCheckpoint checkpoint = this.checkpointUri != null ?
+            new WriteStreamCheckpoint(
+                new org.kestra.task.gcp.gcs.Connection().of(runContext, connection.getOptions().getProjectId()),
+                new URI(runContext.render(this.checkpointUri)),
+                Connection.jobId(runContext)
+            ) :
+            null;
+
+        long start = System.nanoTime();
+        StorageWriter.Result result;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            runContext.uriToInputStream(new URI(runContext.render(this.from))),
+            StandardCharsets.UTF_8
+        ))) {
+            Iterator<Map<?, ?>> rows = reader
+                .lines()
+                .filter(line -> !line.isEmpty())
+                .<Map<?, ?>>map(line -> {
+                    try {
+                        return JacksonMapper.ofJson().readValue(line, Map.class);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .iterator();
+
+            result = writer.write(tableId, schema, rows, checkpoint, this.checkpointRows, logger);
+        }
+
+        if (checkpoint != null) {
+            checkpoint.delete();
+        }
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        String[] tags = {"destination_table", destinationTable, "write_stream_type", this.writeStreamType.name()};
+
+        runContext.metric(Counter.of("append.rows", result.getRows(), tags));
+        runContext.metric(Counter.of("append.requests", result.getRequests(), tags));
+        runContext.metric(Counter.of("append.bytes", result.getBytes(), tags));
+        runContext.metric(Timer.of("append.duration", duration, tags));
+
+        if (result.getDuplicates() > 0) {
+            logger.info("{} appends were already written on stream '{}' by a previous attempt", result.getDuplicates(), result.getStreamName());
+            runContext.metric(Counter.of("append.duplicates", result.getDuplicates(), tags));
+        }
+
+        logger.info("Wrote {} rows in {} appends to '{}'", result.getRows(), result.getRequests(), destinationTable);
+
+        return Output.builder()
+            .streamName(result.getStreamName())
+            .rows(result.getRows())
+            .commitTime(result.getCommitTime())
+            .build();
+    }
+
+    public enum WriteStreamType {
+        COMMITTED,
+        PENDING
+    }
+
+    @Builder
+    @Getter
+    public static class Output implements org.kestra.core.models.tasks.Output {
+        @OutputProperty(
+            description = "The write stream name"
+        )
+        private String streamName;
+
+        @OutputProperty(
+            description = "The number of rows written"
+        )
+        private Long rows;
+
+        @OutputProperty(
+            description = "The commit time of a PENDING write stream"
+        )
+        private Instant commitTime;
+    }
+}
@@ -0,0 +1,435 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.api.gax.rpc.ClientStream;
+import com.google.api.gax.rpc.NotFoundException;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.StreamController;
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.FieldList;
+import com.google.cloud.bigquery.Schema;
+import com.google.cloud.bigquery.StandardSQLTypeName;
+import com.google.cloud.bigquery.TableId;
+import com.google.cloud.bigquery.storage.v1alpha2.BigQueryWriteClient;
+import com.google.cloud.bigquery.storage.v1alpha2.ProtoBufProto.ProtoRows;
+import com.google.cloud.bigquery.storage.v1alpha2.ProtoBufProto.ProtoSchema;
+import com.google.cloud.bigquery.storage.v1alpha2.Storage.*;
+import com.google.cloud.bigquery.storage.v1alpha2.Stream.WriteStream;
+import com.google.protobuf.*;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write rows to a table with the BigQuery Storage Write API. Rows are converted to protocol buffers from the
+ * table schema and appended in batches on a write stream, each append carrying the offset of its first row so
+ * an append sent twice is only written once in the stream. Up to {@code maxInFlightRequests} appends are sent
+ * before waiting for their acknowledgement. With a {@link WriteStreamCheckpoint}, a retried write resumes the
+ * stream of the previous attempt from its last acknowledged row; without one, each write uses a new stream.
+ */
+public class StorageWriter {
+    // the append request limit is 10 MB, keep some room for the writer schema and the request envelope
+    private static final int MAX_REQUEST_BYTES = 9 * 1024 * 1024;
+    private static final String ROW_MESSAGE = "Row";
+
+    private final BigQueryWriteClient client;
+    private final WriteStream.Type type;
+    private final int batchSize;
+    private final int maxInFlightRequests;
+
+    public StorageWriter(BigQueryWriteClient client, WriteStream.Type type, int batchSize, int maxInFlightRequests) {
+        this.client = client;
+        this.type = type;
+        this.batchSize = batchSize;
+        this.maxInFlightRequests = maxInFlightRequests;
+    }
+
+    public Result write(TableId table, Schema schema, Iterator<Map<?, ?>> rows, WriteStreamCheckpoint checkpoint, long checkpointRows, Logger logger) throws IOException, InterruptedException {
+        String tablePath = "projects/" + table.getProject() + "/datasets/" + table.getDataset() + "/tables/" + table.getTable();
+        Descriptors.Descriptor descriptor = descriptor(schema);
+
+        WriteStreamCheckpoint.State state = checkpoint != null ? checkpoint.load().orElse(null) : null;
+        WriteStream stream = state != null ? this.stream(state, logger) : null;
+
+        if (stream == null) {
+            stream = this.client.createWriteStream(CreateWriteStreamRequest.newBuilder()
+                .setParent(tablePath)
+                .setWriteStream(WriteStream.newBuilder().setType(this.type))
+                .build()
+            );
+
+            state = new WriteStreamCheckpoint.State(stream.getName(), 0, false);
+            if (checkpoint != null) {
+                checkpoint.save(state);
+            }
+
+            logger.debug("Created {} write stream '{}'", this.type, stream.getName());
+        }
+
+        long offset = state.getOffset();
+        long bytes = 0;
+        int count = 0;
+        long duplicates = 0;
+
+        if (!state.isFinalized()) {
+            // the rows before the checkpointed offset are already in the stream
+            for (long i = 0; i < offset; i++) {
+                if (!rows.hasNext()) {
+                    throw new IOException("Input is shorter than the " + offset + " rows checkpointed on write stream '" + stream.getName() + "'");
+                }
+
+                rows.next();
+            }
+
+            Appender appender = new Appender(this.maxInFlightRequests, offset);
+            ClientStream<AppendRowsRequest> requests = this.client.appendRowsCallable().splitCall(appender);
+            long checkpointed = offset;
+
+            try {
+                ProtoRows.Builder batch = ProtoRows.newBuilder();
+                long batchBytes = 0;
+
+                while (rows.hasNext()) {
+                    ByteString row = message(descriptor, schema.getFields(), rows.next()).toByteString();
+
+                    if (batch.getSerializedRowsCount() >= this.batchSize ||
+                        (batch.getSerializedRowsCount() > 0 && batchBytes + row.size() > MAX_REQUEST_BYTES)
+                    ) {
+                        appender.send(requests, this.request(stream, descriptor, batch, offset, count == 0), offset, batch.getSerializedRowsCount());
+                        offset += batch.getSerializedRowsCount();
+                        bytes += batchBytes;
+                        count++;
+
+                        batch = ProtoRows.newBuilder();
+                        batchBytes = 0;
+
+                        long acknowledged = appender.acknowledged.get();
+                        if (checkpoint != null && acknowledged - checkpointed >= checkpointRows) {
+                            checkpoint.save(new WriteStreamCheckpoint.State(stream.getName(), acknowledged, false));
+                            checkpointed = acknowledged;
+                        }
+                    }
+
+                    batch.addSerializedRows(row);
+                    batchBytes += row.size();
+                }
+
+                if (batch.getSerializedRowsCount() > 0) {
+                    appender.send(requests, this.request(stream, descriptor, batch, offset, count == 0), offset, batch.getSerializedRowsCount());
+                    offset += batch.getSerializedRowsCount();
+                    bytes += batchBytes;
+                    count++;
+                }
+
+                appender.await();
+                requests.closeSend();
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                requests.closeSendWithError(e);
+
+                throw e;
+            }
+
+            duplicates = appender.duplicates.get();
+
+            FinalizeWriteStreamResponse finalized = this.client.finalizeWriteStream(FinalizeWriteStreamRequest.newBuilder()
+                .setName(stream.getName())
+                .build()
+            );
+
+            if (finalized.getRowCount() != offset) {
+                throw new IOException("Write stream '" + stream.getName() + "' has " + finalized.getRowCount() +
+                    " rows, " + offset + " were appended");
+            }
+
+            if (checkpoint != null) {
+                checkpoint.save(new WriteStreamCheckpoint.State(stream.getName(), offset, true));
+            }
+        }
+
+        Instant commitTime = null;
+        if (this.type == WriteStream.Type.PENDING) {
+            if (stream.hasCommitTime()) {
+                commitTime = Instant.ofEpochSecond(stream.getCommitTime().getSeconds(), stream.getCommitTime().getNanos());
+            } else {
+                BatchCommitWriteStreamsResponse committed = this.client.batchCommitWriteStreams(BatchCommitWriteStreamsRequest.newBuilder()
+                    .setParent(tablePath)
+                    .addWriteStreams(stream.getName())
+                    .build()
+                );
+
+                if (!committed.hasCommitTime()) {
+                    throw new IOException("Write stream '" + stream.getName() + "' was not committed");
+                }
+
+                commitTime = Instant.ofEpochSecond(committed.getCommitTime().getSeconds(), committed.getCommitTime().getNanos());
+            }
+        }
+
+        return new Result(stream.getName(), offset, count, bytes, duplicates, commitTime);
+    }
+
+    /**
+     * The checkpointed stream, or null if it expired or doesn't match the stream type anymore.
+     */
+    private WriteStream stream(WriteStreamCheckpoint.State state, Logger logger) {
+        WriteStream stream;
+
+        try {
+            stream = this.client.getWriteStream(GetWriteStreamRequest.newBuilder()
+                .setName(state.getStreamName())
+                .build()
+            );
+        } catch (NotFoundException e) {
+            logger.warn("Checkpointed write stream '{}' doesn't exist anymore, writing on a new stream", state.getStreamName());
+
+            return null;
+        }
+
+        if (stream.getType() != this.type) {
+            logger.warn("Checkpointed write stream '{}' is {}, writing on a new {} stream", stream.getName(), stream.getType(), this.type);
+
+            return null;
+        }
+
+        logger.info("Resuming write stream '{}' at row {}", stream.getName(), state.getOffset());
+
+        return stream;
+    }
+
+    private AppendRowsRequest request(WriteStream stream, Descriptors.Descriptor descriptor, ProtoRows.Builder rows, long offset, boolean first) {
+        AppendRowsRequest.ProtoData.Builder data = AppendRowsRequest.ProtoData.newBuilder()
+            .setRows(rows);
+
+        // the writer schema is only needed on the first request of the connection
+        if (first) {
+            data.setWriterSchema(ProtoSchema.newBuilder().setProtoDescriptor(descriptor.toProto()));
+        }
+
+        return AppendRowsRequest.newBuilder()
+            .setWriteStream(stream.getName())
+            .setOffset(Int64Value.of(offset))
+            .setProtoRows(data)
+            .build();
+    }
+
+    static Descriptors.Descriptor descriptor(Schema schema) throws IOException {
+        DescriptorProtos.FileDescriptorProto file = DescriptorProtos.FileDescriptorProto.newBuilder()
+            .addMessageType(descriptorProto(ROW_MESSAGE, schema.getFields()))
+            .build();
+
+        try {
+            return Descriptors.FileDescriptor
+                .buildFrom(file, new Descriptors.FileDescriptor[0])
+                .findMessageTypeByName(ROW_MESSAGE);
+        } catch (Descriptors.DescriptorValidationException e) {
+            throw new IOException("Unable to convert the table schema to a protocol buffer descriptor", e);
+        }
+    }
+
+    private static DescriptorProto descriptorProto(String name, FieldList fields) {
+        DescriptorProto.Builder builder = DescriptorProto.newBuilder().setName(name);
+
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            FieldDescriptorProto.Builder fieldBuilder = FieldDescriptorProto.newBuilder()
+                .setName(field.getName())
+                .setNumber(i + 1)
+                .setLabel(label(field));
+
+            if (field.getType().getStandardType() == StandardSQLTypeName.STRUCT) {
+                String nestedName = "Struct" + (i + 1);
+
+                builder.addNestedType(descriptorProto(nestedName, field.getSubFields()));
+                fieldBuilder
+                    .setType(FieldDescriptorProto.Type.TYPE_MESSAGE)
+                    .setTypeName(nestedName);
+            } else {
+                fieldBuilder.setType(type(field.getType().getStandardType()));
+            }
+
+            builder.addField(fieldBuilder);
+        }
+
+        return builder.build();
+    }
+
+    private static FieldDescriptorProto.Label label(Field field) {
+        if (field.getMode() == Field.Mode.REPEATED) {
+            return FieldDescriptorProto.Label.LABEL_REPEATED;
+        } else if (field.getMode() == Field.Mode.REQUIRED) {
+            return FieldDescriptorProto.Label.LABEL_REQUIRED;
+        }
+
+        return FieldDescriptorProto.Label.LABEL_OPTIONAL;
+    }
+
+    private static FieldDescriptorProto.Type type(StandardSQLTypeName type) {
+        switch (type) {
+            case BOOL:
+                return FieldDescriptorProto.Type.TYPE_BOOL;
+            case INT64:
+            case TIMESTAMP:
+                return FieldDescriptorProto.Type.TYPE_INT64;
+            case FLOAT64:
+                return FieldDescriptorProto.Type.TYPE_DOUBLE;
+            case BYTES:
+                return FieldDescriptorProto.Type.TYPE_BYTES;
+            case DATE:
+                return FieldDescriptorProto.Type.TYPE_INT32;
+            default:
+                // NUMERIC, DATETIME, TIME and GEOGRAPHY are sent with their string representation
+                return FieldDescriptorProto.Type.TYPE_STRING;
+        }
+    }
+
+    private static DynamicMessage message(Descriptors.Descriptor descriptor, FieldList fields, Map<?, ?> row) {
+        DynamicMessage.Builder builder = DynamicMessage.newBuilder(descriptor);
+
+        for (Field field : fields) {
+            Object value = row.get(field.getName());
+
+            if (value == null) {
+                continue;
+            }
+
+            Descriptors.FieldDescriptor fieldDescriptor = descriptor.findFieldByName(field.getName());
+
+            if (fieldDescriptor.isRepeated()) {
+                for (Object item : (List<?>) value) {
+                    builder.addRepeatedField(fieldDescriptor, value(fieldDescriptor, field, item));
+                }
+            } else {
+                builder.setField(fieldDescriptor, value(fieldDescriptor, field, value));
+            }
+        }
+
+        return builder.build();
+    }
+
+    private static Object value(Descriptors.FieldDescriptor descriptor, Field field, Object value) {
+        switch (field.getType().getStandardType()) {
+            case STRUCT:
+                return message(descriptor.getMessageType(), field.getSubFields(), (Map<?, ?>) value);
+            case BOOL:
+                return value instanceof Boolean ? value : Boolean.parseBoolean(value.toString());
+            case INT64:
+                return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+            case FLOAT64:
+                return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+            case BYTES:
+                return ByteString.copyFrom(Base64.getDecoder().decode(value.toString()));
+            case TIMESTAMP:
+                // numbers are seconds since epoch like in BigQuery json files, the write api expects microseconds
+                if (value instanceof Number) {
+                    return new BigDecimal(value.toString()).movePointRight(6).longValue();
+                }
+
+                return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.parse(value.toString()));
+            case DATE:
+                return (int) LocalDate.parse(value.toString()).toEpochDay();
+            default:
+                return value.toString();
+        }
+    }
+
+    /**
+     * Track the acknowledgement of the appends, in the order they were sent. A semaphore bounds the number of
+     * appends waiting for their acknowledgement, and the first error fails the next send.
+     */
+    private static class Appender implements ResponseObserver<AppendRowsResponse> {
+        private final int maxInFlightRequests;
+        private final Semaphore inFlight;
+        private final Queue<long[]> appends = new ConcurrentLinkedQueue<>();
+        private final AtomicLong duplicates = new AtomicLong();
+        // the end of the last append acknowledged, appends are acknowledged in the order they were sent
+        private final AtomicLong acknowledged;
+        private volatile Throwable error;
+
+        private Appender(int maxInFlightRequests, long offset) {
+            this.maxInFlightRequests = maxInFlightRequests;
+            this.inFlight = new Semaphore(maxInFlightRequests);
+            this.acknowledged = new AtomicLong(offset);
+        }
+
+        private void send(ClientStream<AppendRowsRequest> requests, AppendRowsRequest request, long offset, int rows) throws IOException, InterruptedException {
+            this.inFlight.acquire();
+            this.failOnError();
+
+            this.appends.add(new long[]{offset, offset + rows});
+            requests.send(request);
+        }
+
+        private void await() throws IOException, InterruptedException {
+            this.inFlight.acquire(this.maxInFlightRequests);
+            this.failOnError();
+        }
+
+        private void failOnError() throws IOException {
+            if (this.error != null) {
+                throw new IOException("Append failed on write stream", this.error);
+            }
+        }
+
+        @Override
+        public void onStart(StreamController controller) {
+        }
+
+        @Override
+        public void onResponse(AppendRowsResponse response) {
+            long[] append = this.appends.poll();
+            Long offset = append != null ? append[0] : null;
+
+            if (response.hasError()) {
+                // the rows at this offset were already written, by a previous attempt on the same stream
+                if (response.getError().getCode() == com.google.rpc.Code.ALREADY_EXISTS_VALUE) {
+                    this.duplicates.incrementAndGet();
+                    this.acknowledged.set(append[1]);
+                } else if (this.error == null) {
+                    this.error = new IOException("Append at offset " + offset + " failed: " + response.getError().getMessage());
+                }
+            } else if (offset == null || response.getOffset() != offset) {
+                if (this.error == null) {
+                    this.error = new IOException("Append at offset " + offset + " acknowledged at offset " + response.getOffset());
+                }
+            } else {
+                this.acknowledged.set(append[1]);
+            }
+
+            this.inFlight.release();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+
+            // unblock any send or await waiting for an acknowledgement that will never come
+            this.inFlight.release(this.maxInFlightRequests);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final String streamName;
+        private final long rows;
+        private final int requests;
+        private final long bytes;
+        private final long duplicates;
+        private final Instant commitTime;
+    }
+}
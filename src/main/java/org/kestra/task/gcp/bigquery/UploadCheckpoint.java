@@ -0,0 +1,82 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.bigquery.JobId;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.kestra.core.serializers.JacksonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Save the state of a load upload session in a gcs file, so an upload interrupted by a worker restart can
+ * be resumed from the last checkpoint instead of from the start. The state is a json file with the upload
+ * session uri and the offset in the input, which is also the uploaded position: checkpoints are only saved
+ * once every byte written was flushed. The channel is rebuilt on resume with the credentials of the task.
+ */
+public class UploadCheckpoint {
+    private final Storage storage;
+    private final BlobId blobId;
+
+    public UploadCheckpoint(Storage storage, URI uri, JobId jobId) {
+        String prefix = uri.getPath().length() > 1 ? uri.getPath().substring(1) : "";
+
+        this.storage = storage;
+        this.blobId = BlobId.of(
+            uri.getAuthority(),
+            (prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/") + jobId.getJob() + ".json"
+        );
+    }
+
+    public Optional<State> load() throws IOException {
+        Blob blob = this.storage.get(this.blobId);
+
+        if (blob == null) {
+            return Optional.empty();
+        }
+
+        Map<?, ?> state;
+        try {
+            state = JacksonMapper.ofJson().readValue(blob.getContent(), Map.class);
+        } catch (JsonProcessingException e) {
+            return Optional.empty();
+        }
+
+        if (!(state.get("uploadId") instanceof String) || !(state.get("offset") instanceof Number)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new State((String) state.get("uploadId"), ((Number) state.get("offset")).longValue()));
+    }
+
+    public void save(WriteChannel writer, long offset) throws IOException {
+        Map<String, Object> state = new HashMap<>();
+        state.put("uploadId", ResumedUpload.uploadId(writer));
+        state.put("offset", offset);
+
+        this.storage.create(
+            BlobInfo.newBuilder(this.blobId).setContentType("application/json").build(),
+            JacksonMapper.ofJson().writeValueAsBytes(state)
+        );
+    }
+
+    public void delete() {
+        this.storage.delete(this.blobId);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class State {
+        private final String uploadId;
+        private final long offset;
+    }
+}
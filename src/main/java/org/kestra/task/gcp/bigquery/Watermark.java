@@ -0,0 +1,225 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.cloud.bigquery.*;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
+import lombok.*;
+import org.kestra.core.exceptions.IllegalVariableEvaluationException;
+import org.kestra.core.models.annotations.InputProperty;
+import org.kestra.core.runners.RunContext;
+import org.kestra.core.serializers.JacksonMapper;
+import org.slf4j.Logger;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Keep the watermark of an incremental query in a gcs file. The new watermark is computed before the query
+ * runs and kept in the file as pending, both bounds are passed to the query as named parameters, and the
+ * watermark is only advanced once the query succeeded, with a generation precondition so two concurrent runs
+ * can't both advance it. A retried attempt reuses the pending range instead of computing a new one, so it
+ * matches the query job it attaches to. The watermark query is a job like the main one, attached to on retry
+ * and waited for with the same polling, so it's cancelled if the task is killed or times out.
+ */
+@Builder
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Watermark {
+    public static final String FROM_PARAMETER = "watermark_from";
+    public static final String TO_PARAMETER = "watermark_to";
+
+    @NotNull
+    @InputProperty(
+        description = "The gcs uri of the file keeping the watermark",
+        body = "Like 'gs://my_bucket/watermarks/my_flow.json', each incremental query needs its own file.",
+        dynamic = true
+    )
+    private String uri;
+
+    @NotNull
+    @InputProperty(
+        description = "The query computing the new watermark",
+        body = "Must return a single value, like 'SELECT MAX(updated_at) FROM my_dataset.my_table'. It runs before\n" +
+            " the main query, so rows arriving while the query runs are processed by the next run.",
+        dynamic = true
+    )
+    private String sql;
+
+    @InputProperty(
+        description = "The watermark used on the first run",
+        body = "Use the BigQuery string representation of the watermark type. If not provided,\n" +
+            " '@watermark_from' is NULL on the first run.",
+        dynamic = true
+    )
+    private String initialValue;
+
+    public Range range(RunContext runContext, BigQuery connection, JobWaiter waiter, Logger logger) throws IllegalVariableEvaluationException, IOException, InterruptedException {
+        BlobId blobId = this.blobId(runContext);
+        Storage storage = new org.kestra.task.gcp.gcs.Connection().of(runContext, connection.getOptions().getProjectId());
+        String job = Connection.jobId(runContext).getJob();
+
+        Blob blob = storage.get(blobId);
+        String from = this.initialValue != null ? runContext.render(this.initialValue) : null;
+        Map<?, ?> pending = null;
+
+        if (blob != null) {
+            Map<?, ?> state = JacksonMapper.ofJson().readValue(blob.getContent(), Map.class);
+            from = (String) state.get("value");
+            pending = (Map<?, ?>) state.get("pending");
+        }
+
+        // a retry reuses the range of the previous attempt, that may have succeeded before the watermark was committed
+        if (pending != null && job.equals(pending.get("job"))) {
+            Range range = new Range(
+                storage,
+                BlobId.of(blobId.getBucket(), blobId.getName(), blob.getGeneration()),
+                true,
+                StandardSQLTypeName.valueOf((String) pending.get("type")),
+                from,
+                (String) pending.get("to")
+            );
+
+            logger.info("Reusing watermark range from '{}' to '{}' of a previous attempt", range.from, range.to);
+
+            return range;
+        }
+
+        Job watermarkJob = Connection.createOrAttach(
+            connection,
+            JobInfo.newBuilder(QueryJobConfiguration.newBuilder(runContext.render(this.sql)).build())
+                .setJobId(JobId.of(job + "_watermark"))
+                .build(),
+            logger
+        );
+
+        Connection.handleErrors(watermarkJob, logger);
+        if (watermarkJob.getStatus().getState() != JobStatus.State.DONE) {
+            watermarkJob = waiter.waitFor(watermarkJob);
+        }
+        Connection.handleErrors(watermarkJob, logger);
+
+        TableResult result = watermarkJob.getQueryResults();
+        StandardSQLTypeName type = result.getSchema().getFields().get(0).getType().getStandardType();
+        Iterator<FieldValueList> values = result.getValues().iterator();
+        FieldValue value = values.hasNext() ? values.next().get(0) : null;
+
+        String to = from;
+        if (value != null && !value.isNull()) {
+            to = type == StandardSQLTypeName.TIMESTAMP ?
+                QueryParameterValue.timestamp(value.getTimestampValue()).getValue() :
+                value.getStringValue();
+        }
+
+        logger.debug("Watermark from '{}' to '{}'", from, to);
+
+        Range range = new Range(
+            storage,
+            blob != null ? BlobId.of(blobId.getBucket(), blobId.getName(), blob.getGeneration()) : blobId,
+            blob != null,
+            type,
+            from,
+            to
+        );
+
+        if (range.isEmpty()) {
+            return range;
+        }
+
+        // keep the range before the query runs, the commit is then conditioned on this generation
+        Map<String, Object> pendingState = new HashMap<>();
+        pendingState.put("job", job);
+        pendingState.put("type", type.name());
+        pendingState.put("to", to);
+
+        Map<String, Object> state = new HashMap<>();
+        state.put("type", type.name());
+        state.put("value", from);
+        state.put("pending", pendingState);
+
+        Blob saved = this.write(range, state);
+
+        return new Range(
+            storage,
+            BlobId.of(blobId.getBucket(), blobId.getName(), saved.getGeneration()),
+            true,
+            type,
+            from,
+            to
+        );
+    }
+
+    public void commit(Range range, Logger logger) throws IOException {
+        Map<String, Object> state = new HashMap<>();
+        state.put("type", range.type.name());
+        state.put("value", range.to);
+
+        this.write(range, state);
+
+        logger.info("Watermark advanced to '{}'", range.to);
+    }
+
+    private Blob write(Range range, Map<String, Object> state) throws IOException {
+        byte[] content = JacksonMapper.ofJson().writeValueAsBytes(state);
+
+        try {
+            return range.storage.create(
+                BlobInfo.newBuilder(range.blobId).setContentType("application/json").build(),
+                content,
+                range.exists ? Storage.BlobTargetOption.generationMatch() : Storage.BlobTargetOption.doesNotExist()
+            );
+        } catch (StorageException e) {
+            if (e.getCode() == 412) {
+                throw new IOException("Watermark '" + range.blobId.getName() + "' was updated by another run", e);
+            }
+
+            throw e;
+        }
+    }
+
+    private BlobId blobId(RunContext runContext) throws IllegalVariableEvaluationException {
+        try {
+            URI uri = new URI(runContext.render(this.uri));
+
+            return BlobId.of(uri.getAuthority(), uri.getPath().substring(1));
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid watermark uri '" + this.uri + "'", e);
+        }
+    }
+
+    public interface JobWaiter {
+        Job waitFor(Job job) throws InterruptedException, IOException;
+    }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class Range {
+        private final Storage storage;
+        private final BlobId blobId;
+        private final boolean exists;
+        private final StandardSQLTypeName type;
+        private final String from;
+        private final String to;
+
+        public boolean isEmpty() {
+            return this.to == null || this.to.equals(this.from);
+        }
+
+        public QueryJobConfiguration parameters(QueryJobConfiguration jobConfiguration) {
+            return jobConfiguration.toBuilder()
+                .addNamedParameter(FROM_PARAMETER, Query.QueryParameter.value(this.from, this.type))
+                .addNamedParameter(TO_PARAMETER, Query.QueryParameter.value(this.to, this.type))
+                .build();
+        }
+    }
+}
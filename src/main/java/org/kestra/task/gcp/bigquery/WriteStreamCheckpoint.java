@@ -0,0 +1,87 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.cloud.bigquery.JobId;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.kestra.core.serializers.JacksonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Save the write stream of a storage write in a gcs file, so a retried task appends to the same stream instead
+ * of a new one. The state holds the stream name, the number of rows acknowledged in order, and whether the
+ * stream was finalized. Rows are appended with their offset in the file, so the appends of a previous attempt
+ * that were written after the last checkpoint are rejected as already existing instead of written twice.
+ */
+public class WriteStreamCheckpoint {
+    private final Storage storage;
+    private final BlobId blobId;
+
+    public WriteStreamCheckpoint(Storage storage, URI uri, JobId jobId) {
+        String prefix = uri.getPath().length() > 1 ? uri.getPath().substring(1) : "";
+
+        this.storage = storage;
+        this.blobId = BlobId.of(
+            uri.getAuthority(),
+            (prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/") + jobId.getJob() + ".stream.json"
+        );
+    }
+
+    public Optional<State> load() throws IOException {
+        Blob blob = this.storage.get(this.blobId);
+
+        if (blob == null) {
+            return Optional.empty();
+        }
+
+        Map<?, ?> state;
+        try {
+            state = JacksonMapper.ofJson().readValue(blob.getContent(), Map.class);
+        } catch (JsonProcessingException e) {
+            return Optional.empty();
+        }
+
+        if (!(state.get("streamName") instanceof String) || !(state.get("offset") instanceof Number)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new State(
+            (String) state.get("streamName"),
+            ((Number) state.get("offset")).longValue(),
+            Boolean.TRUE.equals(state.get("finalized"))
+        ));
+    }
+
+    public void save(State state) throws IOException {
+        Map<String, Object> content = new HashMap<>();
+        content.put("streamName", state.getStreamName());
+        content.put("offset", state.getOffset());
+        content.put("finalized", state.isFinalized());
+
+        this.storage.create(
+            BlobInfo.newBuilder(this.blobId).setContentType("application/json").build(),
+            JacksonMapper.ofJson().writeValueAsBytes(content)
+        );
+    }
+
+    public void delete() {
+        this.storage.delete(this.blobId);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class State {
+        private final String streamName;
+        private final long offset;
+        private final boolean finalized;
+    }
+}
@@ -2,9 +2,13 @@ package org.kestra.task.gcp.gcs;
 
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
+import com.google.common.cache.Cache;
+import org.kestra.core.runners.RunContext;
 import org.kestra.task.gcp.AbstractConnection;
 
 public class Connection extends AbstractConnection {
+    private static final Cache<String, Storage> CLIENTS = clientCache();
+
     public Storage of(String projectId) {
         return StorageOptions
             .newBuilder()
@@ -21,4 +25,8 @@ public class Connection extends AbstractConnection {
             .build()
             .getService();
     }
+
+    public Storage of(RunContext runContext, String projectId) {
+        return client(runContext, CLIENTS, projectId, () -> this.of(projectId));
+    }
 }
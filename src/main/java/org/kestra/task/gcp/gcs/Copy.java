@@ -60,7 +60,7 @@ public class Copy extends Task implements RunnableTask<Copy.Output> {
 
     @Override
     public Copy.Output run(RunContext runContext) throws Exception {
-        Storage connection = new Connection().of(runContext.render(this.projectId));
+        Storage connection = new Connection().of(runContext, runContext.render(this.projectId));
         Logger logger = runContext.logger(this.getClass());
         URI from = new URI(runContext.render(this.from));
         URI to = new URI(runContext.render(this.to));
@@ -46,7 +46,7 @@ public class DeleteBucket extends Task implements RunnableTask<DeleteBucket.Outp
 
     @Override
     public Output run(RunContext runContext) throws Exception {
-        Storage connection = new Connection().of(runContext.render(this.projectId));
+        Storage connection = new Connection().of(runContext, runContext.render(this.projectId));
         Logger logger = runContext.logger(this.getClass());
         String name = runContext.render(this.name);
 
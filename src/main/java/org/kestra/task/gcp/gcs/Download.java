@@ -47,7 +47,7 @@ public class Download extends Task implements RunnableTask<Download.Output> {
 
     @Override
     public Output run(RunContext runContext) throws Exception {
-        Storage connection = new Connection().of(runContext.render(this.projectId));
+        Storage connection = new Connection().of(runContext, runContext.render(this.projectId));
 
         Logger logger = runContext.logger(this.getClass());
         URI from = new URI(runContext.render(this.from));
@@ -33,7 +33,7 @@ import org.slf4j.Logger;
 public class UpdateBucket extends AbstractBucket implements RunnableTask<AbstractBucket.Output> {
     @Override
     public AbstractBucket.Output run(RunContext runContext) throws Exception {
-        Storage connection = new Connection().of(runContext.render(this.projectId));
+        Storage connection = new Connection().of(runContext, runContext.render(this.projectId));
         Logger logger = runContext.logger(this.getClass());
         BucketInfo bucketInfo = this.bucketInfo(runContext);
 
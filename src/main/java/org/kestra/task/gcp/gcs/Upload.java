@@ -54,7 +54,7 @@ public class Upload extends Task implements RunnableTask<Upload.Output> {
 
     @Override
     public Output run(RunContext runContext) throws Exception {
-        Storage connection = new Connection().of(runContext.render(this.projectId));
+        Storage connection = new Connection().of(runContext, runContext.render(this.projectId));
 
         Logger logger = runContext.logger(this.getClass());
         URI from = new URI(runContext.render(this.from));
@@ -0,0 +1,110 @@
+package org.kestra.task.gcp;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.collect.ImmutableMap;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.test.annotation.MicronautTest;
+import org.junit.jupiter.api.Test;
+import org.kestra.core.runners.RunContext;
+import org.kestra.core.utils.TestsUtils;
+import org.kestra.task.gcp.gcs.Download;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Inject;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@MicronautTest
+class AbstractConnectionTest {
+    @Inject
+    private ApplicationContext applicationContext;
+
+    @Test
+    void client() {
+        RunContext runContext = runContext();
+        Cache<String, Object> cache = AbstractConnection.clientCache();
+        AtomicInteger loads = new AtomicInteger();
+
+        Object first = AbstractConnection.client(runContext, cache, "project:EU", () -> {
+            loads.incrementAndGet();
+            return new Object();
+        });
+        Object second = AbstractConnection.client(runContext, cache, "project:EU", () -> {
+            loads.incrementAndGet();
+            return new Object();
+        });
+        Object other = AbstractConnection.client(runContext, cache, "project:US", () -> {
+            loads.incrementAndGet();
+            return new Object();
+        });
+
+        assertThat(second, sameInstance(first));
+        assertThat(other, not(sameInstance(first)));
+        assertThat(loads.get(), is(2));
+        assertThat(counter(runContext, "client.cache.miss"), is(2D));
+        assertThat(counter(runContext, "client.cache.hit"), is(1D));
+    }
+
+    @Test
+    void idleEviction() {
+        AtomicLong nanos = new AtomicLong();
+        List<Object> removed = new ArrayList<>();
+        Cache<String, Object> cache = AbstractConnection.clientCacheBuilder()
+            .ticker(new Ticker() {
+                @Override
+                public long read() {
+                    return nanos.get();
+                }
+            })
+            .removalListener(notification -> removed.add(notification.getValue()))
+            .build();
+
+        Object client = new Object();
+        cache.put("project", client);
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(29));
+        assertThat(cache.getIfPresent("project"), sameInstance(client));
+
+        // the lookup above resets the idle time
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(29));
+        assertThat(cache.getIfPresent("project"), sameInstance(client));
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(31));
+        assertThat(cache.getIfPresent("project"), is(nullValue()));
+
+        cache.cleanUp();
+        assertThat(removed, contains(client));
+    }
+
+    @Test
+    void fingerprint() {
+        assertThat(AbstractConnection.fingerprint(null), is("default"));
+        assertThat(AbstractConnection.fingerprint("{\"client_email\": \"a\"}"), is(AbstractConnection.fingerprint("{\"client_email\": \"a\"}")));
+        assertThat(AbstractConnection.fingerprint("{\"client_email\": \"a\"}"), not(AbstractConnection.fingerprint("{\"client_email\": \"b\"}")));
+        assertThat(AbstractConnection.fingerprint("{\"client_email\": \"a\"}"), not(containsString("client_email")));
+    }
+
+    private RunContext runContext() {
+        Download task = Download.builder()
+            .id(AbstractConnectionTest.class.getSimpleName())
+            .type(Download.class.getName())
+            .from("gs://bucket/file")
+            .build();
+
+        return TestsUtils.mockRunContext(this.applicationContext, task, ImmutableMap.of());
+    }
+
+    private static double counter(RunContext runContext, String name) {
+        return runContext.metrics()
+            .stream()
+            .filter(metric -> metric.getName().equals(name))
+            .mapToDouble(metric -> ((Number) metric.getValue()).doubleValue())
+            .sum();
+    }
+}
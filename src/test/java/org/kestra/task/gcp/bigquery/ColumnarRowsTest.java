@@ -0,0 +1,106 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.FieldList;
+import com.google.cloud.bigquery.LegacySQLTypeName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColumnarRowsTest {
+    private static final FieldList FIELDS = FieldList.of(
+        Field.of("id", LegacySQLTypeName.INTEGER),
+        Field.of("amount", LegacySQLTypeName.FLOAT),
+        Field.of("active", LegacySQLTypeName.BOOLEAN),
+        Field.of("country", LegacySQLTypeName.STRING),
+        Field.of("day", LegacySQLTypeName.DATE),
+        Field.newBuilder("tags", LegacySQLTypeName.STRING).setMode(Field.Mode.REPEATED).build()
+    );
+
+    @Test
+    void primitives() {
+        ColumnarRows rows = new ColumnarRows(FIELDS);
+
+        for (int i = 0; i < 100; i++) {
+            rows.add(row(i, i * 1.5, i % 2 == 0, "country " + (i % 3), LocalDate.ofEpochDay(i)));
+        }
+
+        assertThat(rows.size(), is(100));
+        assertThat(rows.get(42).get("id"), is(42L));
+        assertThat(rows.get(42).get("amount"), is(63D));
+        assertThat(rows.get(42).get("active"), is(true));
+        assertThat(rows.get(43).get("active"), is(false));
+        assertThat(rows.get(42).get("country"), is("country 0"));
+        assertThat(rows.get(43).get("country"), is("country 1"));
+        assertThat(rows.get(42).get("day"), is(LocalDate.ofEpochDay(42)));
+        assertThat(rows.get(42).get("tags"), is(Arrays.asList("a", "b")));
+        assertThat(rows.get(42).get("unknown"), is(nullValue()));
+    }
+
+    @Test
+    void nulls() {
+        ColumnarRows rows = new ColumnarRows(FIELDS);
+
+        rows.add(row(1, 1D, true, "first", LocalDate.ofEpochDay(1)));
+        rows.add(row(null, null, null, null, null));
+        rows.add(row(3, 3D, false, "first", LocalDate.ofEpochDay(3)));
+
+        assertThat(rows.get(1).get("id"), is(nullValue()));
+        assertThat(rows.get(1).get("amount"), is(nullValue()));
+        assertThat(rows.get(1).get("active"), is(nullValue()));
+        assertThat(rows.get(1).get("country"), is(nullValue()));
+        assertThat(rows.get(1).get("day"), is(nullValue()));
+        assertThat(rows.get(1).containsKey("id"), is(true));
+        assertThat(rows.get(2).get("id"), is(3L));
+        assertThat(rows.get(2).get("country"), is("first"));
+    }
+
+    @Test
+    void dictionaryFallback() {
+        ColumnarRows rows = new ColumnarRows(FIELDS);
+        int count = ColumnarRows.MAX_DICTIONARY_SIZE * 2;
+
+        for (int i = 0; i < count; i++) {
+            rows.add(row(i, null, null, i % 10 == 0 ? null : "value " + i, null));
+        }
+
+        assertThat(rows.size(), is(count));
+        assertThat(rows.get(1).get("country"), is("value 1"));
+        assertThat(rows.get(10).get("country"), is(nullValue()));
+        assertThat(rows.get(ColumnarRows.MAX_DICTIONARY_SIZE + 1).get("country"), is("value " + (ColumnarRows.MAX_DICTIONARY_SIZE + 1)));
+        assertThat(rows.get(count - 1).get("country"), is("value " + (count - 1)));
+    }
+
+    @Test
+    void rowView() {
+        ColumnarRows rows = new ColumnarRows(FIELDS);
+        Map<String, Object> row = row(1, 2.5, true, "fr", LocalDate.ofEpochDay(1));
+
+        rows.add(row);
+
+        assertThat(rows.get(0), is(row));
+        assertThat(rows.get(0).size(), is(FIELDS.size()));
+        assertThat(rows.get(0).keySet(), containsInAnyOrder("id", "amount", "active", "country", "day", "tags"));
+        assertThrows(IndexOutOfBoundsException.class, () -> rows.get(1));
+        assertThrows(UnsupportedOperationException.class, () -> rows.get(0).put("id", 2L));
+    }
+
+    private static Map<String, Object> row(Integer id, Double amount, Boolean active, String country, LocalDate day) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id == null ? null : id.longValue());
+        row.put("amount", amount);
+        row.put("active", active);
+        row.put("country", country);
+        row.put("day", day);
+        row.put("tags", Arrays.asList("a", "b"));
+
+        return row;
+    }
+}
@@ -0,0 +1,113 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.devskiller.friendly_id.FriendlyId;
+import com.google.cloud.bigquery.*;
+import com.google.common.collect.ImmutableMap;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.test.annotation.MicronautTest;
+import org.junit.jupiter.api.Test;
+import org.kestra.core.runners.RunContext;
+import org.kestra.core.storages.StorageInterface;
+import org.kestra.core.utils.TestsUtils;
+
+import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@MicronautTest
+class InsertRowsTest {
+    @Inject
+    private StorageInterface storageInterface;
+
+    @Inject
+    private ApplicationContext applicationContext;
+
+    @Value("${kestra.tasks.bigquery.project}")
+    private String project;
+
+    @Value("${kestra.tasks.bigquery.dataset}")
+    private String dataset;
+
+    @Test
+    void run() throws Exception {
+        String table = this.table();
+        URI source = this.source(IntStream.range(0, 25)
+            .mapToObj(i -> "{\"id\": " + i + ", \"name\": \"row " + i + "\"}")
+            .collect(Collectors.joining("\n"))
+        );
+
+        InsertRows task = InsertRows.builder()
+            .id(InsertRowsTest.class.getSimpleName())
+            .type(InsertRows.class.getName())
+            .from(source.toString())
+            .destinationTable(project + "." + dataset + "." + table)
+            .batchSize(10)
+            .concurrency(2)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+
+        InsertRows.Output run = task.run(runContext);
+
+        assertThat(run.getRows(), is(25L));
+        assertThat(run.getInvalidRows(), is(0L));
+    }
+
+    @Test
+    void invalidRows() throws Exception {
+        String table = this.table();
+        URI source = this.source("{\"id\": 1, \"name\": \"valid\"}\n{\"id\": \"invalid\", \"name\": \"invalid\"}");
+
+        InsertRows task = InsertRows.builder()
+            .id(InsertRowsTest.class.getSimpleName())
+            .type(InsertRows.class.getName())
+            .from(source.toString())
+            .destinationTable(project + "." + dataset + "." + table)
+            .build();
+
+        assertThrows(IOException.class, () -> task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of())));
+
+        InsertRows skipTask = InsertRows.builder()
+            .id(InsertRowsTest.class.getSimpleName())
+            .type(InsertRows.class.getName())
+            .from(source.toString())
+            .destinationTable(project + "." + dataset + "." + table)
+            .skipInvalidRows(true)
+            .build();
+
+        InsertRows.Output run = skipTask.run(TestsUtils.mockRunContext(applicationContext, skipTask, ImmutableMap.of()));
+
+        assertThat(run.getRows(), is(1L));
+        assertThat(run.getInvalidRows(), is(1L));
+    }
+
+    private String table() {
+        String table = FriendlyId.createFriendlyId();
+
+        new Connection().of(project, null).create(TableInfo.of(
+            TableId.of(project, dataset, table),
+            StandardTableDefinition.of(Schema.of(
+                Field.of("id", LegacySQLTypeName.INTEGER),
+                Field.of("name", LegacySQLTypeName.STRING)
+            ))
+        ));
+
+        return table;
+    }
+
+    private URI source(String content) throws Exception {
+        return storageInterface.put(
+            new URI("/" + FriendlyId.createFriendlyId()),
+            new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))
+        );
+    }
+}
@@ -1,6 +1,7 @@
 package org.kestra.task.gcp.bigquery;
 
 import com.devskiller.friendly_id.FriendlyId;
+import com.google.cloud.bigquery.*;
 import com.google.common.collect.ImmutableMap;
 import io.micronaut.context.ApplicationContext;
 import io.micronaut.context.annotation.Value;
@@ -10,10 +11,17 @@ import org.kestra.core.runners.RunContext;
 import org.kestra.core.storages.StorageInterface;
 import org.kestra.core.utils.TestsUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import javax.inject.Inject;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -32,6 +40,9 @@ class LoadTest {
     @Value("${kestra.tasks.bigquery.dataset}")
     private String dataset;
 
+    @Value("${kestra.tasks.gcs.bucket}")
+    private String bucket;
+
     @Test
     void fromCsv() throws Exception {
         URI source = storageInterface.put(
@@ -62,6 +73,182 @@ class LoadTest {
         assertThat(run.getRows(), is(5L));
     }
 
+    @Test
+    void chunks() throws Exception {
+        // about 1.3 MB: several full chunks and a last partial one
+        byte[] content = IntStream.range(0, 100_000)
+            .mapToObj(i -> i + "|row " + i + "\n")
+            .collect(Collectors.joining())
+            .getBytes(StandardCharsets.UTF_8);
+        URI source = storageInterface.put(new URI("/" + FriendlyId.createFriendlyId()), new ByteArrayInputStream(content));
+
+        Load task = Load.builder()
+            .id(LoadTest.class.getSimpleName())
+            .type(Load.class.getName())
+            .from(source.toString())
+            .destinationTable(project + "." + dataset + "." + FriendlyId.createFriendlyId())
+            .format(AbstractLoad.Format.CSV)
+            .schema(Schema.of(
+                Field.of("id", LegacySQLTypeName.INTEGER),
+                Field.of("name", LegacySQLTypeName.STRING)
+            ))
+            .csvOptions(AbstractLoad.CsvOptions.builder()
+                .fieldDelimiter("|")
+                .build()
+            )
+            // not a multiple of 256 KB, rounded down
+            .chunkSize(300 * 1024)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+
+        AbstractLoad.Output run = task.run(runContext);
+
+        assertThat(run.getRows(), is(100_000L));
+        assertThat(Load.chunkSize(300 * 1024), is(256 * 1024));
+        assertThat(Load.chunkSize(1), is(256 * 1024));
+        assertThat(Load.chunkSize(8 * 1024 * 1024), is(8 * 1024 * 1024));
+    }
+
+    @Test
+    void checkpoint() throws Exception {
+        URI source = storageInterface.put(
+            new URI("/" + FriendlyId.createFriendlyId()),
+            new FileInputStream(new File(Objects.requireNonNull(LoadTest.class.getClassLoader()
+                .getResource("bigquery/insurance_sample.csv"))
+                .toURI()))
+        );
+
+        Load task = Load.builder()
+            .id(LoadTest.class.getSimpleName())
+            .type(Load.class.getName())
+            .from(source.toString())
+            .destinationTable(project + "." + dataset + "." + FriendlyId.createFriendlyId())
+            .format(AbstractLoad.Format.CSV)
+            .autodetect(true)
+            .csvOptions(AbstractLoad.CsvOptions.builder()
+                .fieldDelimiter("|")
+                .allowJaggedRows(true)
+                .build()
+            )
+            .chunkSize(256 * 1024)
+            .checkpointUri("gs://" + bucket + "/tasks/gcp/checkpoints")
+            .checkpointBytes(1L)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+
+        AbstractLoad.Output run = task.run(runContext);
+
+        assertThat(run.getRows(), is(5L));
+    }
+
+    @Test
+    void resume() throws Exception {
+        // more than one 256 KB chunk, so the first one is flushed by the interrupted attempt
+        byte[] content = IntStream.range(0, 50_000)
+            .mapToObj(i -> i + "|row " + i + "\n")
+            .collect(Collectors.joining())
+            .getBytes(StandardCharsets.UTF_8);
+        URI source = storageInterface.put(new URI("/" + FriendlyId.createFriendlyId()), new ByteArrayInputStream(content));
+        String checkpointUri = "gs://" + bucket + "/tasks/gcp/checkpoints";
+        int chunkSize = 256 * 1024;
+
+        Load task = Load.builder()
+            .id(LoadTest.class.getSimpleName())
+            .type(Load.class.getName())
+            .from(source.toString())
+            .destinationTable(project + "." + dataset + "." + FriendlyId.createFriendlyId())
+            .format(AbstractLoad.Format.CSV)
+            .schema(Schema.of(
+                Field.of("id", LegacySQLTypeName.INTEGER),
+                Field.of("name", LegacySQLTypeName.STRING)
+            ))
+            .csvOptions(AbstractLoad.CsvOptions.builder()
+                .fieldDelimiter("|")
+                .build()
+            )
+            .chunkSize(chunkSize)
+            .checkpointUri(checkpointUri)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+
+        // an interrupted first attempt: the first chunk uploaded and checkpointed, the upload never closed
+        BigQuery connection = new Connection().of(project, null);
+        WriteChannelConfiguration.Builder builder = WriteChannelConfiguration.newBuilder(Connection.tableId(task.getDestinationTable()));
+        task.setOptions(builder);
+
+        JobId jobId = Connection.jobId(runContext);
+        TableDataWriteChannel writer = connection.writer(jobId, builder.build());
+        writer.setChunkSize(chunkSize);
+        writer.write(ByteBuffer.wrap(content, 0, chunkSize));
+
+        UploadCheckpoint checkpoint = new UploadCheckpoint(
+            new org.kestra.task.gcp.gcs.Connection().of(project),
+            new URI(checkpointUri),
+            jobId
+        );
+        checkpoint.save(writer, chunkSize);
+
+        UploadCheckpoint.State state = checkpoint.load().orElseThrow();
+        assertThat(state.getOffset(), is((long) chunkSize));
+
+        // the retry restores the session and only sends the rest of the file, a missed skip would add rows
+        AbstractLoad.Output run = task.run(runContext);
+
+        assertThat(run.getJobId(), is(jobId.getJob()));
+        assertThat(run.getRows(), is(50_000L));
+        assertThat(checkpoint.load().isPresent(), is(false));
+    }
+
+    @Test
+    void shards() throws Exception {
+        File file = new File(Objects.requireNonNull(LoadTest.class.getClassLoader()
+            .getResource("bigquery/insurance_sample.csv"))
+            .toURI());
+
+        Schema schema = Schema.of(Arrays
+            .stream(Files.readAllLines(file.toPath()).get(0).split("\\|"))
+            .map(name -> Field.of(name.replace("\"", ""), LegacySQLTypeName.STRING))
+            .collect(Collectors.toList())
+        );
+
+        URI source = storageInterface.put(new URI("/" + FriendlyId.createFriendlyId()), new FileInputStream(file));
+
+        Load.LoadBuilder<?, ?> builder = Load.builder()
+            .id(LoadTest.class.getSimpleName())
+            .type(Load.class.getName())
+            .from(source.toString())
+            .format(AbstractLoad.Format.CSV)
+            .schema(schema)
+            .writeDisposition(JobInfo.WriteDisposition.WRITE_TRUNCATE)
+            .csvOptions(AbstractLoad.CsvOptions.builder()
+                .fieldDelimiter("|")
+                .allowJaggedRows(true)
+                .skipLeadingRows(1L)
+                .build()
+            )
+            .shards(3);
+
+        Load task = builder
+            .destinationTable(project + "." + dataset + "." + FriendlyId.createFriendlyId())
+            .build();
+
+        AbstractLoad.Output run = task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+
+        assertThat(run.getRows(), is(5L));
+
+        task = builder
+            .destinationTable(project + "." + dataset + "." + FriendlyId.createFriendlyId())
+            .shardStagingUri("gs://" + bucket + "/tasks/gcp/staging")
+            .build();
+
+        run = task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+
+        assertThat(run.getRows(), is(5L));
+    }
+
     @Test
     void fromAvro() throws Exception {
         URI source = storageInterface.put(
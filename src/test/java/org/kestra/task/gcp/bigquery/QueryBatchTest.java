@@ -0,0 +1,80 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.devskiller.friendly_id.FriendlyId;
+import com.google.cloud.bigquery.JobInfo;
+import com.google.common.collect.ImmutableMap;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.test.annotation.MicronautTest;
+import org.junit.jupiter.api.Test;
+import org.kestra.core.runners.RunContext;
+import org.kestra.core.utils.TestsUtils;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@MicronautTest
+class QueryBatchTest {
+    @Inject
+    private ApplicationContext applicationContext;
+
+    @Value("${kestra.tasks.bigquery.project}")
+    private String project;
+
+    @Value("${kestra.tasks.bigquery.dataset}")
+    private String dataset;
+
+    @Test
+    void run() throws Exception {
+        String table = project + "." + dataset + "." + FriendlyId.createFriendlyId();
+
+        QueryBatch task = QueryBatch.builder()
+            .id(QueryBatchTest.class.getSimpleName())
+            .type(QueryBatch.class.getName())
+            .concurrency(2)
+            .queries(Arrays.asList(
+                QueryBatch.BatchQuery.builder().sql("SELECT 1 AS id").build(),
+                QueryBatch.BatchQuery.builder().sql("SELECT 2 AS id").build(),
+                QueryBatch.BatchQuery.builder()
+                    .sql("SELECT \"{{execution.id}}\" AS id")
+                    .destinationTable(table)
+                    .writeDisposition(JobInfo.WriteDisposition.WRITE_TRUNCATE)
+                    .build()
+            ))
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+
+        QueryBatch.Output run = task.run(runContext);
+
+        assertThat(run.getJobs().size(), is(3));
+        assertThat(run.getJobs().get(0).getJobId(), is(notNullValue()));
+        assertThat(run.getJobs().get(2).getDestinationTable(), is(table));
+    }
+
+    @Test
+    void error() {
+        QueryBatch task = QueryBatch.builder()
+            .id(QueryBatchTest.class.getSimpleName())
+            .type(QueryBatch.class.getName())
+            .queries(Arrays.asList(
+                QueryBatch.BatchQuery.builder().sql("SELECT 1 AS id").build(),
+                QueryBatch.BatchQuery.builder().sql("SELECT * from `{{execution.id}}`").build()
+            ))
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+
+        IOException e = assertThrows(IOException.class, () -> {
+            task.run(runContext);
+        });
+
+        assertThat(e.getMessage(), containsString("missing dataset while no default dataset"));
+    }
+}
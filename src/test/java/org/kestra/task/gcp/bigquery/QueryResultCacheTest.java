@@ -0,0 +1,66 @@
+package org.kestra.task.gcp.bigquery;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class QueryResultCacheTest {
+    @Test
+    void rows() throws Exception {
+        Map<String, Object> struct = new HashMap<>();
+        struct.put("name", "struct");
+
+        Map<String, Object> row = new HashMap<>();
+        row.put("int", 42L);
+        row.put("float", 1.5D);
+        row.put("bool", true);
+        row.put("date", LocalDate.parse("2020-09-01"));
+        row.put("time", LocalTime.parse("12:30:00"));
+        row.put("timestamp", Instant.parse("2020-09-01T12:30:00Z"));
+        row.put("bytes", new byte[]{1, 2, 3});
+        row.put("geography", FieldValueConverter.geography("POINT(1.5 2.5)"));
+        row.put("repeated", new ArrayList<>(Arrays.asList("a", "b")));
+        row.put("struct", struct);
+        row.put("null", null);
+
+        String key = key("rows");
+        QueryResultCache.put(key, Collections.singletonList(row));
+
+        Map<String, Object> cached = QueryResultCache.get(key, Duration.ofMinutes(1)).orElseThrow().get(0);
+
+        assertThat(cached.get("int"), is(42L));
+        assertThat(cached.get("float"), is(1.5D));
+        assertThat(cached.get("bool"), is(true));
+        assertThat(cached.get("date"), is(LocalDate.parse("2020-09-01")));
+        assertThat(cached.get("time"), is(LocalTime.parse("12:30:00")));
+        assertThat(cached.get("timestamp"), is(Instant.parse("2020-09-01T12:30:00Z")));
+        assertThat((byte[]) cached.get("bytes"), is(new byte[]{1, 2, 3}));
+        assertThat(cached.get("geography"), is(Arrays.asList(1.5D, 2.5D)));
+        assertThat(cached.get("repeated"), is(Arrays.asList("a", "b")));
+        assertThat(cached.get("struct"), is(struct));
+        assertThat(cached.containsKey("null"), is(true));
+    }
+
+    @Test
+    void rejectUnknownClasses() throws Exception {
+        Map<String, Object> row = new HashMap<>();
+        row.put("uri", URI.create("gs://bucket/file"));
+
+        String key = key("rejected");
+        QueryResultCache.put(key, Collections.singletonList(row));
+
+        assertThat(QueryResultCache.get(key, Duration.ofMinutes(1)).isPresent(), is(false));
+    }
+
+    private static String key(String sql) {
+        return QueryResultCache.key("project", "EU", null, false, sql + UUID.randomUUID(), null, "rows");
+    }
+}
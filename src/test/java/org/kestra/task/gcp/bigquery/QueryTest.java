@@ -1,7 +1,16 @@
 package org.kestra.task.gcp.bigquery;
 
 import com.devskiller.friendly_id.FriendlyId;
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobId;
 import com.google.cloud.bigquery.JobInfo;
+import com.google.cloud.bigquery.JobStatus;
+import com.google.cloud.bigquery.QueryJobConfiguration;
+import com.google.cloud.bigquery.StandardSQLTypeName;
+import com.google.cloud.bigquery.StandardTableDefinition;
+import com.google.cloud.bigquery.TableId;
+import com.google.cloud.bigquery.TimePartitioning;
 import com.google.common.collect.ContiguousSet;
 import com.google.common.collect.DiscreteDomain;
 import com.google.common.collect.ImmutableMap;
@@ -12,14 +21,19 @@ import io.micronaut.http.hateoas.JsonError;
 import io.micronaut.test.annotation.MicronautTest;
 import org.junit.jupiter.api.Test;
 import org.kestra.core.runners.RunContext;
+import org.kestra.core.storages.StorageInterface;
 import org.kestra.core.utils.TestsUtils;
 
 import javax.inject.Inject;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -32,12 +46,18 @@ class QueryTest {
     @Inject
     private ApplicationContext applicationContext;
 
+    @Inject
+    private StorageInterface storageInterface;
+
     @Value("${kestra.tasks.bigquery.project}")
     private String project;
 
     @Value("${kestra.tasks.bigquery.dataset}")
     private String dataset;
 
+    @Value("${kestra.tasks.gcs.bucket}")
+    private String bucket;
+
     @Test
     @SuppressWarnings("unchecked")
     void fetch() throws Exception {
@@ -86,6 +106,262 @@ class QueryTest {
         assertThat((List<Long>) ((Map<String, Object>) rows.get(0).get("struct")).get("z"), containsInAnyOrder(1L, 2L, 3L));
     }
 
+    @Test
+    void fetchStorageApi() throws Exception {
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT x AS id, CONCAT(\"name_\", CAST(x AS STRING)) AS name FROM UNNEST(GENERATE_ARRAY(1, 10000)) AS x")
+            .fetch(true)
+            .storageApi(true)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+
+        Query.Output run = task.run(runContext);
+
+        assertThat(run.getRows().size(), is(10000));
+        assertThat(run.getRows().stream().mapToLong(row -> (Long) row.get("id")).sum(), is(50005000L));
+    }
+
+    @Test
+    void fetchPrefetch() throws Exception {
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT x AS id FROM UNNEST(GENERATE_ARRAY(1, 10000)) AS x ORDER BY x")
+            .fetch(true)
+            .pageSize(1000L)
+            .prefetchPages(2)
+            .fetchThreads(2)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+
+        Query.Output run = task.run(runContext);
+
+        assertThat(run.getRows().size(), is(10000));
+        assertThat(run.getRows().get(0).get("id"), is(1L));
+        assertThat(run.getRows().get(9999).get("id"), is(10000L));
+    }
+
+    @Test
+    void fetchLimit() throws Exception {
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT x AS id FROM UNNEST(GENERATE_ARRAY(1, 10000)) AS x ORDER BY x")
+            .fetch(true)
+            .maxRows(10L)
+            .build();
+
+        Query.Output run = task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+
+        assertThat(run.getRows().size(), is(10));
+
+        task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT x AS id FROM UNNEST(GENERATE_ARRAY(1, 10000)) AS x ORDER BY x")
+            .fetchOne(true)
+            .build();
+
+        run = task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+
+        assertThat(run.getRow().get("id"), is(1L));
+    }
+
+    @Test
+    void shortQuery() throws Exception {
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT 1 AS id, \"John\" AS name, STRUCT(4 AS x, [1, 2] AS y) AS `struct`, [\"a\", \"b\"] AS `array`")
+            .fetch(true)
+            .shortQuery(true)
+            .build();
+
+        Query.Output run = task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+
+        assertThat(run.getJobId(), is(notNullValue()));
+        assertThat(run.getRows().size(), is(1));
+        assertThat(run.getRows().get(0).get("id"), is(1L));
+        assertThat(run.getRows().get(0).get("name"), is("John"));
+        assertThat(((Map<String, Object>) run.getRows().get(0).get("struct")).get("x"), is(4L));
+        assertThat((List<String>) run.getRows().get(0).get("array"), contains("a", "b"));
+
+        task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT x AS id FROM UNNEST(GENERATE_ARRAY(1, 10000)) AS x ORDER BY x")
+            .fetch(true)
+            .pageSize(100L)
+            .shortQuery(true)
+            .build();
+
+        run = task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+
+        assertThat(run.getRows().size(), is(10000));
+    }
+
+    @Test
+    void resultCache() throws Exception {
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT \"" + FriendlyId.createFriendlyId() + "\" AS id, DATE(\"2008-12-25\") AS date")
+            .fetch(true)
+            .resultCacheTtl(Duration.ofMinutes(5))
+            .build();
+
+        Query.Output first = task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+        Query.Output second = task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+
+        assertThat(first.getJobId(), is(notNullValue()));
+        assertThat(second.getJobId(), is(nullValue()));
+        assertThat(second.getRows(), is(first.getRows()));
+        assertThat(second.getRows().get(0).get("date"), is(LocalDate.parse("2008-12-25")));
+    }
+
+    @Test
+    void store() throws Exception {
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT 1 as id, \"John\" as name UNION ALL SELECT 2 as id, \"Doe\" as name")
+            .store(true)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+
+        Query.Output run = task.run(runContext);
+
+        assertThat(run.getSize(), is(2L));
+        assertThat(run.getRows(), is(nullValue()));
+
+        List<String> lines = new BufferedReader(new InputStreamReader(storageInterface.get(run.getUri())))
+            .lines()
+            .collect(Collectors.toList());
+
+        assertThat(lines.size(), is(2));
+        assertThat(lines, hasItem(containsString("\"John\"")));
+    }
+
+    @Test
+    void profile() throws Exception {
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT MOD(x, 10) AS id, COUNT(*) AS count, \"" + FriendlyId.createFriendlyId() + "\" AS uncached " +
+                "FROM UNNEST(GENERATE_ARRAY(1, 10000)) AS x GROUP BY id")
+            .planMetrics(true)
+            .storeProfile(true)
+            .build();
+
+        Query.Output run = task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+
+        String profile = new BufferedReader(new InputStreamReader(storageInterface.get(run.getProfileUri())))
+            .lines()
+            .collect(Collectors.joining());
+
+        assertThat(profile, containsString("\"stages\""));
+        assertThat(profile, containsString("\"recordsRead\""));
+    }
+
+    @Test
+    void watermark() throws Exception {
+        String uri = "gs://" + bucket + "/tasks/gcp/watermarks/" + FriendlyId.createFriendlyId() + ".json";
+
+        Query.QueryBuilder<?, ?> builder = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT @watermark_from AS `from`, @watermark_to AS `to`")
+            .fetchOne(true);
+
+        Query task = builder
+            .watermark(Watermark.builder().uri(uri).sql("SELECT TIMESTAMP(\"2020-01-01\")").build())
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+        Query.Output run = task.run(runContext);
+
+        assertThat(run.getRow().get("from"), is(nullValue()));
+        assertThat(run.getRow().get("to"), is(Instant.parse("2020-01-01T00:00:00Z")));
+
+        // the watermark query runs as its own job, next to the main one
+        Job watermarkJob = new Connection().of(project, null)
+            .getJob(JobId.of(Connection.jobId(runContext).getJob() + "_watermark"));
+        assertThat(watermarkJob, is(notNullValue()));
+        assertThat(watermarkJob.getStatus().getState(), is(JobStatus.State.DONE));
+
+        run = task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+
+        assertThat(run.getJobId(), is(nullValue()));
+        assertThat(run.getWatermark(), is(notNullValue()));
+
+        task = builder
+            .watermark(Watermark.builder().uri(uri).sql("SELECT TIMESTAMP(\"2020-01-02\")").build())
+            .build();
+
+        run = task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+
+        assertThat(run.getRow().get("from"), is(Instant.parse("2020-01-01T00:00:00Z")));
+        assertThat(run.getRow().get("to"), is(Instant.parse("2020-01-02T00:00:00Z")));
+    }
+
+    @Test
+    void parameters() throws Exception {
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT @name AS name, ? AS date, x FROM UNNEST(@values) AS x")
+            .namedParameters(ImmutableMap.of(
+                "name", Query.QueryParameter.builder().type(StandardSQLTypeName.STRING).value("{{inputs.name}}").build(),
+                "values", Query.QueryParameter.builder().type(StandardSQLTypeName.INT64).values(Arrays.asList("1", "2")).build()
+            ))
+            .positionalParameters(Collections.singletonList(
+                Query.QueryParameter.builder().type(StandardSQLTypeName.DATE).value("2008-12-25").build()
+            ))
+            .fetch(true)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of("name", "John"));
+
+        Query.Output run = task.run(runContext);
+
+        assertThat(run.getRows().size(), is(2));
+        assertThat(run.getRows().get(0).get("name"), is("John"));
+        assertThat(run.getRows().get(0).get("date"), is(LocalDate.parse("2008-12-25")));
+    }
+
+    @Test
+    void typedParameters() throws Exception {
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT @count + 1 AS count, @ratio AS ratio, @enabled AS enabled, @amount AS amount, " +
+                "(SELECT SUM(x) FROM UNNEST(@values) AS x) AS total")
+            .namedParameters(ImmutableMap.of(
+                "count", Query.QueryParameter.builder().type(StandardSQLTypeName.INT64).value("{{inputs.count}}").build(),
+                "ratio", Query.QueryParameter.builder().type(StandardSQLTypeName.FLOAT64).value("0.5").build(),
+                "enabled", Query.QueryParameter.builder().type(StandardSQLTypeName.BOOL).value("true").build(),
+                "amount", Query.QueryParameter.builder().type(StandardSQLTypeName.NUMERIC).value("12.5").build(),
+                "values", Query.QueryParameter.builder().type(StandardSQLTypeName.FLOAT64).values(Arrays.asList("1.5", "2.5")).build()
+            ))
+            .fetchOne(true)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of("count", "41"));
+
+        Query.Output run = task.run(runContext);
+
+        assertThat(run.getRow().get("count"), is(42L));
+        assertThat(run.getRow().get("ratio"), is(0.5D));
+        assertThat(run.getRow().get("enabled"), is(true));
+        assertThat(run.getRow().get("amount"), is(12.5D));
+        assertThat(run.getRow().get("total"), is(4D));
+    }
+
     @Test
     void destination() throws Exception {
         Query task = Query.builder()
@@ -100,6 +376,7 @@ class QueryTest {
                 "{{/each}}"
             )
             .destinationTable(project + "." + dataset + "." + FriendlyId.createFriendlyId())
+            // the deprecated alias of 'partitioning.timeField'
             .timePartitioningField("execution_date")
             .clusteringFields(Arrays.asList("execution_id", "counter"))
             .schemaUpdateOptions(Collections.singletonList(JobInfo.SchemaUpdateOption.ALLOW_FIELD_ADDITION))
@@ -112,6 +389,82 @@ class QueryTest {
 
         Query.Output run = task.run(runContext);
         assertThat(run.getJobId(), is(notNullValue()));
+
+        StandardTableDefinition definition = new Connection().of(project, null)
+            .getTable(Connection.tableId(task.getDestinationTable()))
+            .getDefinition();
+
+        assertThat(definition.getTimePartitioning().getField(), is("execution_date"));
+    }
+
+    @Test
+    void partitioning() throws Exception {
+        String table = FriendlyId.createFriendlyId();
+
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT CURRENT_TIMESTAMP() AS date, 5 AS counter")
+            .destinationTable(project + "." + dataset + "." + table)
+            .partitioning(Partitioning.builder()
+                .timeField("date")
+                .timeType(TimePartitioning.Type.HOUR)
+                .expiration(Duration.ofDays(7))
+                .requireFilter(true)
+                .build()
+            )
+            .build();
+
+        task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+
+        StandardTableDefinition definition = new Connection().of(project, null)
+            .getTable(TableId.of(project, dataset, table))
+            .getDefinition();
+
+        assertThat(definition.getTimePartitioning().getType(), is(TimePartitioning.Type.HOUR));
+        assertThat(definition.getTimePartitioning().getExpirationMs(), is(Duration.ofDays(7).toMillis()));
+
+        table = FriendlyId.createFriendlyId();
+
+        task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT 5 AS counter")
+            .destinationTable(project + "." + dataset + "." + table)
+            .partitioning(Partitioning.builder()
+                .rangeField("counter")
+                .rangeStart(0L)
+                .rangeEnd(100L)
+                .rangeInterval(10L)
+                .build()
+            )
+            .build();
+
+        task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+
+        definition = new Connection().of(project, null)
+            .getTable(TableId.of(project, dataset, table))
+            .getDefinition();
+
+        assertThat(definition.getRangePartitioning().getRange().getInterval(), is(10L));
+    }
+
+    @Test
+    void attach() throws Exception {
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT 1 AS id")
+            .fetchOne(true)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+
+        Query.Output first = task.run(runContext);
+        Query.Output retry = task.run(runContext);
+
+        assertThat(retry.getJobId(), is(first.getJobId()));
+        assertThat(retry.getRow().get("id"), is(1L));
     }
 
     @Test
@@ -131,6 +484,121 @@ class QueryTest {
         assertThat(e.getMessage(), containsString("missing dataset while no default dataset"));
     }
 
+    @Test
+    void preflight() {
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT word FROM `bigquery-public-data.samples.shakespeare`")
+            .preflight(true)
+            .preflightMaxBytes(1L)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> {
+            task.run(runContext);
+        });
+
+        assertThat(e.getMessage(), containsString("preflightMaxBytes"));
+    }
+
+    @Test
+    void preflightBatch() throws Exception {
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT COUNT(word) AS count, \"" + FriendlyId.createFriendlyId() + "\" AS uncached FROM `bigquery-public-data.samples.shakespeare`")
+            .fetchOne(true)
+            .preflight(true)
+            .preflightMaxBytes(1L)
+            .preflightAction(Query.PreflightAction.BATCH)
+            .build();
+
+        Query.Output run = task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+
+        QueryJobConfiguration configuration = new Connection().of(project, null)
+            .getJob(run.getJobId())
+            .getConfiguration();
+
+        assertThat(run.getRow().get("count"), is(164656L));
+        assertThat(configuration.getPriority(), is(QueryJobConfiguration.Priority.BATCH));
+    }
+
+    @Test
+    void maximumBytesBilled() throws Exception {
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT COUNT(word) AS count, \"" + FriendlyId.createFriendlyId() + "\" AS uncached FROM `bigquery-public-data.samples.shakespeare`")
+            .fetchOne(true)
+            .preflight(true)
+            .preflightMaxBytes(1024L * 1024 * 1024)
+            .maximumBytesBilled(1024L * 1024 * 1024)
+            .build();
+
+        Query.Output run = task.run(TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of()));
+
+        QueryJobConfiguration configuration = new Connection().of(project, null)
+            .getJob(run.getJobId())
+            .getConfiguration();
+
+        assertThat(configuration.getPriority(), is(QueryJobConfiguration.Priority.INTERACTIVE));
+        assertThat(configuration.getMaximumBytesBilled(), is(1024L * 1024 * 1024));
+
+        // below the bytes processed, BigQuery refuses to run the query
+        Query capped = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            .sql("SELECT COUNT(word) AS count, \"" + FriendlyId.createFriendlyId() + "\" AS uncached FROM `bigquery-public-data.samples.shakespeare`")
+            .fetchOne(true)
+            .maximumBytesBilled(1L)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, capped, ImmutableMap.of());
+
+        Exception e = assertThrows(Exception.class, () -> {
+            capped.run(runContext);
+        });
+
+        assertThat(e.getMessage(), containsString("bytes billed"));
+    }
+
+    @Test
+    void pollingTimeout() throws Exception {
+        Query task = Query.builder()
+            .id(QueryTest.class.getSimpleName())
+            .type(Query.class.getName())
+            // never a cache hit, a job already done at creation doesn't wait and can't time out
+            .sql("SELECT word, COUNT(*), \"" + FriendlyId.createFriendlyId() + "\" AS uncached FROM `bigquery-public-data.samples.shakespeare` GROUP BY word")
+            .polling(JobPolling.builder()
+                .initialInterval(Duration.ofMillis(10))
+                .timeout(Duration.ofMillis(1))
+                .build()
+            )
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+
+        IOException e = assertThrows(IOException.class, () -> {
+            task.run(runContext);
+        });
+
+        assertThat(e.getMessage(), containsString("Timeout"));
+
+        // the task stopped waiting, the job is cancelled instead of running to its end
+        BigQuery connection = new Connection().of(project, null);
+        Job job = connection.getJob(Connection.jobId(runContext));
+        for (int i = 0; i < 60 && job.getStatus().getState() != JobStatus.State.DONE; i++) {
+            Thread.sleep(500);
+            job = connection.getJob(Connection.jobId(runContext));
+        }
+
+        assertThat(job.getStatus().getState(), is(JobStatus.State.DONE));
+        assertThat(job.getStatus().getError(), is(notNullValue()));
+        assertThat(job.getStatus().getError().getReason(), is("stopped"));
+    }
+
     @Test
     void script() throws Exception {
         Query task = Query.builder()
@@ -0,0 +1,169 @@
+package org.kestra.task.gcp.bigquery;
+
+import com.devskiller.friendly_id.FriendlyId;
+import com.google.cloud.bigquery.*;
+import com.google.cloud.bigquery.storage.v1alpha2.Stream.WriteStream;
+import com.google.common.collect.ImmutableMap;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.test.annotation.MicronautTest;
+import org.junit.jupiter.api.Test;
+import org.kestra.core.runners.RunContext;
+import org.kestra.core.storages.StorageInterface;
+import org.kestra.core.utils.TestsUtils;
+
+import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@MicronautTest
+class StorageWriteTest {
+    @Inject
+    private StorageInterface storageInterface;
+
+    @Inject
+    private ApplicationContext applicationContext;
+
+    @Value("${kestra.tasks.bigquery.project}")
+    private String project;
+
+    @Value("${kestra.tasks.bigquery.dataset}")
+    private String dataset;
+
+    @Value("${kestra.tasks.gcs.bucket}")
+    private String bucket;
+
+    @Test
+    void run() throws Exception {
+        String table = FriendlyId.createFriendlyId();
+        BigQuery connection = new Connection().of(project, null);
+
+        connection.create(TableInfo.of(
+            TableId.of(project, dataset, table),
+            StandardTableDefinition.of(Schema.of(
+                Field.of("id", LegacySQLTypeName.INTEGER),
+                Field.of("name", LegacySQLTypeName.STRING),
+                Field.of("created", LegacySQLTypeName.TIMESTAMP),
+                Field.newBuilder("tags", LegacySQLTypeName.STRING).setMode(Field.Mode.REPEATED).build()
+            ))
+        ));
+
+        String rows = IntStream.range(0, 25)
+            .mapToObj(i -> "{\"id\": " + i + ", \"name\": \"row " + i + "\", \"created\": \"2020-01-01T00:00:00Z\", \"tags\": [\"a\", \"b\"]}")
+            .collect(Collectors.joining("\n"));
+
+        URI source = storageInterface.put(
+            new URI("/" + FriendlyId.createFriendlyId()),
+            new ByteArrayInputStream(rows.getBytes(StandardCharsets.UTF_8))
+        );
+
+        for (StorageWrite.WriteStreamType type : StorageWrite.WriteStreamType.values()) {
+            StorageWrite task = StorageWrite.builder()
+                .id(StorageWriteTest.class.getSimpleName())
+                .type(StorageWrite.class.getName())
+                .from(source.toString())
+                .destinationTable(project + "." + dataset + "." + table)
+                .writeStreamType(type)
+                .batchSize(10)
+                .maxInFlightRequests(2)
+                .build();
+
+            RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+
+            StorageWrite.Output run = task.run(runContext);
+
+            assertThat(run.getRows(), is(25L));
+            assertThat(run.getStreamName(), is(notNullValue()));
+            assertThat(run.getCommitTime() != null, is(type == StorageWrite.WriteStreamType.PENDING));
+        }
+
+        TableResult result = connection.query(QueryJobConfiguration.of(
+            "SELECT COUNT(*) FROM `" + project + "." + dataset + "." + table + "`"
+        ));
+
+        assertThat(result.getValues().iterator().next().get(0).getLongValue(), is(50L));
+    }
+
+    @Test
+    void resume() throws Exception {
+        String table = FriendlyId.createFriendlyId();
+        Schema schema = Schema.of(
+            Field.of("id", LegacySQLTypeName.INTEGER),
+            Field.of("name", LegacySQLTypeName.STRING)
+        );
+        BigQuery connection = new Connection().of(project, null);
+        TableId tableId = TableId.of(project, dataset, table);
+
+        connection.create(TableInfo.of(tableId, StandardTableDefinition.of(schema)));
+
+        String rows = IntStream.range(0, 25)
+            .mapToObj(i -> "{\"id\": " + i + ", \"name\": \"row " + i + "\"}")
+            .collect(Collectors.joining("\n"));
+
+        URI source = storageInterface.put(
+            new URI("/" + FriendlyId.createFriendlyId()),
+            new ByteArrayInputStream(rows.getBytes(StandardCharsets.UTF_8))
+        );
+
+        String checkpointUri = "gs://" + bucket + "/tasks/gcp/checkpoints";
+        StorageWrite task = StorageWrite.builder()
+            .id(StorageWriteTest.class.getSimpleName())
+            .type(StorageWrite.class.getName())
+            .from(source.toString())
+            .destinationTable(project + "." + dataset + "." + table)
+            .batchSize(5)
+            .maxInFlightRequests(1)
+            .checkpointUri(checkpointUri)
+            .checkpointRows(5)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(applicationContext, task, ImmutableMap.of());
+        WriteStreamCheckpoint checkpoint = new WriteStreamCheckpoint(
+            new org.kestra.task.gcp.gcs.Connection().of(project),
+            new URI(checkpointUri),
+            Connection.jobId(runContext)
+        );
+
+        // an interrupted first attempt: the input fails on the 16th row, after some appends were acknowledged
+        Iterator<Map<?, ?>> failing = IntStream.range(0, 25)
+            .<Map<?, ?>>mapToObj(i -> {
+                if (i == 15) {
+                    throw new IllegalStateException("interrupted");
+                }
+
+                return ImmutableMap.of("id", i, "name", "row " + i);
+            })
+            .iterator();
+
+        StorageWriter writer = new StorageWriter(new Connection().writeClient(runContext, project, null), WriteStream.Type.COMMITTED, 5, 1);
+        assertThrows(IllegalStateException.class, () -> writer.write(tableId, schema, failing, checkpoint, 5, runContext.logger(StorageWriteTest.class)));
+        WriteStreamCheckpoint.State state = checkpoint.load().orElseThrow();
+        assertThat(state.getOffset(), greaterThan(0L));
+
+        // the retry appends to the same stream from the checkpoint, the rows written after it are rejected
+        StorageWrite.Output run = task.run(runContext);
+
+        assertThat(run.getRows(), is(25L));
+        assertThat(run.getStreamName(), is(state.getStreamName()));
+        assertThat(checkpoint.load().isPresent(), is(false));
+
+        TableResult result = connection.query(QueryJobConfiguration.of(
+            "SELECT COUNT(*), COUNT(DISTINCT id) FROM `" + project + "." + dataset + "." + table + "`"
+        ));
+        FieldValueList count = result.getValues().iterator().next();
+
+        assertThat(count.get(0).getLongValue(), is(25L));
+        assertThat(count.get(1).getLongValue(), is(25L));
+    }
+}